@@ -30,6 +30,8 @@ import de.dhbw.mh.lextream.lexport.LexerSpecification;
  */
 public class Main {
 
+	private static final String SKIP_SUFFIX = ".skip";
+
 	private static final String CLI_SYNTAX = "java -jar lexemble.jar [options] <input-pattern> <output-file>";
 	private static final String CLI_HEADER = System.lineSeparator()
 			+ "Generates a lexer specification from (minimized) DFA files.";
@@ -37,6 +39,12 @@ public class Main {
 			+ "Example:" + System.lineSeparator()
 			+ "  java -jar lexemble.jar \"automata/*.mdfa\" lexerspec.txt -v" + System.lineSeparator()
 			+ System.lineSeparator()
+			+ "The token type is the file name without extension. Files named like" + System.lineSeparator()
+			+ "WHITESPACE.skip.mdfa define skip rules, whose matches are discarded." + System.lineSeparator()
+			+ "With --keywords, rules matching a single word that another rule matches" + System.lineSeparator()
+			+ "as well, like IF.mdfa next to IDENTIFIER.mdfa, are turned into a keyword" + System.lineSeparator()
+			+ "table that the lexer consults after the other rule has matched." + System.lineSeparator()
+			+ System.lineSeparator()
 			+ "For more information, visit: https://github.com/marco-haupt/lextream";
 
 
@@ -44,7 +52,9 @@ public class Main {
 		Options options = new Options();
 		Option verbose = new Option("v", "verbose", false, "Enable verbose output");
 		Option help = new Option("h", "help", false, "Print this help text");
+		Option keywords = new Option("k", "keywords", false, "Look up keywords in a table instead of matching them by rules");
 		options.addOption(verbose);
+		options.addOption(keywords);
 		options.addOption(help);
 
 		CommandLine cli = parseArguments(args, options);
@@ -71,7 +81,7 @@ public class Main {
 			inputFiles.forEach(path -> System.out.println(" - " + path));
 		}
 
-		String lexerJson = buildLexerJson(inputFiles);
+		String lexerJson = buildLexerJson(inputFiles, cli.hasOption(keywords), isVerbose);
 
 		if(positionalArgs.length < 2) {
 			System.out.println(lexerJson);
@@ -117,14 +127,24 @@ public class Main {
 	/**
 	 * Builds a lexer specification JSON string from the given files.
 	 */
-	private static String buildLexerJson(List<Path> inputFiles) {
+	private static String buildLexerJson(List<Path> inputFiles, boolean extractKeywords, boolean isVerbose) {
 		try {
 			LexerSpecification lexer = new LexerSpecification();
 			for (Path file : inputFiles) {
 				String content = Files.readString(file, StandardCharsets.UTF_8);
 				DfaModel dfa = DfaModel.fromJson(content);
 				String tokenType = stripExtension(file.getFileName().toString());
-				lexer.addRule(dfa, tokenType);
+				boolean skip = tokenType.endsWith(SKIP_SUFFIX);
+				if (skip) {
+					tokenType = tokenType.substring(0, tokenType.length() - SKIP_SUFFIX.length());
+				}
+				lexer.addRule(dfa, tokenType, skip);
+			}
+			if (extractKeywords) {
+				int numberOfKeywords = lexer.extractKeywords();
+				if (isVerbose) {
+					System.out.printf("Moved %d keyword rules into the keyword table.%n", numberOfKeywords);
+				}
 			}
 			return lexer.asJson();
 		} catch (IOException e) {
@@ -0,0 +1,98 @@
+package de.dhbw.mh.lextream.lexify;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import de.dhbw.mh.lextream.lexport.DfaModel;
+import de.dhbw.mh.lextream.lexport.Interval;
+import de.dhbw.mh.redeggs.CodePointRange;
+
+/**
+ * Partitions the code points used by a set of automata into disjoint symbol
+ * classes. Every symbol of every automaton is the union of one or more of
+ * these classes. Class 0 is reserved for code points outside the alphabet.
+ */
+class Alphabet {
+
+	static final int INVALID_SYMBOL = 0;
+
+	private final List<CodePointRange> classes;
+	private final SymbolStrategy symbols;
+
+	private Alphabet(List<CodePointRange> classes) {
+		this.classes = classes;
+		Map<Integer, CodePointRange> classIdToRange = new HashMap<>();
+		int classId = 1; // 0 is reserved as INVALID_SYMBOL
+		for(CodePointRange range : classes) {
+			classIdToRange.put(classId++, range);
+		}
+		this.symbols = SymbolStrategy.basedOn(classIdToRange);
+	}
+
+	/**
+	 * Computes the common alphabet of the given DFA models.
+	 *
+	 * @param models the automata whose symbols have to be distinguished
+	 * @return the coarsest partition that refines the symbols of all models
+	 */
+	static Alphabet of(Collection<DfaModel> models) {
+		List<CodePointRange> ranges = new ArrayList<>();
+		for(DfaModel model : models) {
+			ranges.addAll(model.getSymbols().values());
+		}
+		if(ranges.isEmpty()) {
+			return new Alphabet(ranges);
+		}
+		List<CodePointRange> classes = new ArrayList<>(Interval.splitOverlappingIntervals(ranges));
+		classes.sort(Comparator.comparingInt(CodePointRange::firstCodePoint));
+		return new Alphabet(classes);
+	}
+
+	int classOf(int codePoint) {
+		return symbols.containing(codePoint);
+	}
+
+	int numberOfClasses() {
+		return classes.size() + 1;
+	}
+
+	/**
+	 * Returns the code points of a valid symbol class.
+	 */
+	CodePointRange rangeOf(int symbol) {
+		return classes.get(symbol - 1);
+	}
+
+	/**
+	 * Returns the ids of all symbol classes that together make up the given
+	 * range. The range has to be a symbol of one of the partitioned automata.
+	 */
+	int[] classesWithin(CodePointRange range) {
+		int low = 0;
+		int high = classes.size() - 1;
+		while(low < high) {
+			int middle = (low + high) >>> 1;
+			if(classes.get(middle).lastCodePoint < range.firstCodePoint) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		int first = low;
+		int last = first;
+		while(last + 1 < classes.size() && classes.get(last + 1).lastCodePoint <= range.lastCodePoint) {
+			++last;
+		}
+		return IntStream.rangeClosed(first + 1, last + 1).toArray();
+	}
+
+	SymbolStrategy symbols() {
+		return symbols;
+	}
+
+}
@@ -0,0 +1,67 @@
+package de.dhbw.mh.lextream.lexify;
+
+import java.util.List;
+
+/**
+ * Tokenizes many small inputs in one go.
+ *
+ * <p>For inputs of a few characters, setting up a {@link Lexer.Instance} per
+ * input costs more than scanning it. The batch walks the automaton over one
+ * input after the other in a single loop instead, appending the tokens
+ * straight to one buffer. Stepping several inputs in turn, so that the
+ * processor could overlap their independent loads, was measured slower: the
+ * transition table stays in the cache, and switching between the inputs
+ * costs more than it saves.</p>
+ */
+class BatchTokenizer {
+
+	private final List<String> tokenTypes;
+	private final boolean[] skipped;
+	private final TokenScanner scanner;
+
+	private final CharSequence[] sources;
+	private final int[] firstPositions;
+	private final int[] limits;
+
+	/**
+	 * @param skipped        whether each token type is discarded, or null if none is
+	 * @param keywords       the keywords to look up, or null if there are none
+	 * @param sources        the text of each input
+	 * @param firstPositions the offset of each input within its text
+	 * @param limits         the offset right after each input within its text
+	 */
+	BatchTokenizer(LexicalAutomaton automaton, Alphabet alphabet, List<String> tokenTypes, boolean[] skipped,
+			Keywords keywords, CharSequence[] sources, int[] firstPositions, int[] limits) {
+		this.tokenTypes = tokenTypes;
+		this.skipped = skipped;
+		this.scanner = new TokenScanner(automaton, alphabet, keywords);
+		this.sources = sources;
+		this.firstPositions = firstPositions;
+		this.limits = limits;
+	}
+
+	/**
+	 * @throws IllegalStateException if an input contains an unexpected sequence
+	 */
+	TokenBuffer tokenize() {
+		TokenBuffer tokens = new TokenBuffer(tokenTypes);
+		for(int input = 0; input < sources.length; ++input) {
+			CharSequence source = sources[input];
+			int limit = limits[input];
+			for(int position = firstPositions[input]; position < limit; position = scanner.end()) {
+				int typeId = scanner.scan(source, position, limit);
+				if(typeId == LexicalAutomaton.NO_TOKEN) {
+					int end = position + Character.charCount(Character.codePointAt(source, position));
+					throw new IllegalStateException(String.format("Unexpected sequence '%s' in input %d",
+							source.subSequence(position, end), input));
+				}
+				if(skipped == null || !skipped[typeId]) {
+					tokens.add(typeId, position, scanner.end());
+				}
+			}
+			tokens.endInput();
+		}
+		return tokens;
+	}
+
+}
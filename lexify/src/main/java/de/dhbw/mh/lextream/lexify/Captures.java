@@ -0,0 +1,93 @@
+package de.dhbw.mh.lextream.lexify;
+
+import java.util.Arrays;
+
+/**
+ * Records the tag operations passed while scanning a token and resolves
+ * them into the capture offsets of the accepted match.
+ *
+ * <p>Each capture group of each rule owns a slot. The operation
+ * {@code 2 * slot} marks the character read as the first one of the group,
+ * {@code 2 * slot + 1} as the last one. A scan usually reads beyond the end
+ * of the accepted match, so operations are only logged while scanning and
+ * resolved on demand: the latest end at or before the end of the match
+ * wins, paired with the latest start at or before that end. A group in a
+ * loop can pass its start again after its last end, so the latest start
+ * alone may belong to an iteration that never finished the group.</p>
+ */
+final class Captures {
+
+	static final int NOT_CAPTURED = -1;
+
+	private int[] operations = new int[16];
+	private int[] positions = new int[16];
+	private int size = 0;
+
+	static int startOf(int slot) {
+		return 2 * slot;
+	}
+
+	static int endOf(int slot) {
+		return 2 * slot + 1;
+	}
+
+	void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Logs the operations of a transition that read the code point from
+	 * {@code first} to {@code last}, which differ for a surrogate pair. A
+	 * start is logged at the first character, an end at the last one.
+	 *
+	 * @param tags the operations of the transition, or null if there are none
+	 */
+	void record(int[] tags, int first, int last) {
+		if(tags == null) {
+			return;
+		}
+		if(size + tags.length > operations.length) {
+			int capacity = Math.max(2 * operations.length, size + tags.length);
+			operations = Arrays.copyOf(operations, capacity);
+			positions = Arrays.copyOf(positions, capacity);
+		}
+		for(int operation : tags) {
+			operations[size] = operation;
+			positions[size] = ((operation & 1) == 0) ? first : last;
+			++size;
+		}
+	}
+
+	/**
+	 * Returns the offset of the first character of a group, or {@link #NOT_CAPTURED}.
+	 *
+	 * @param lastPosition the position of the last character of the match
+	 */
+	int start(int slot, int lastPosition) {
+		int last = latest(endOf(slot), lastPosition);
+		return (last == NOT_CAPTURED) ? NOT_CAPTURED : latest(startOf(slot), last);
+	}
+
+	/**
+	 * Returns the offset right after the last character of a group, or {@link #NOT_CAPTURED}.
+	 *
+	 * @param lastPosition the position of the last character of the match
+	 */
+	int end(int slot, int lastPosition) {
+		int last = latest(endOf(slot), lastPosition);
+		if(last == NOT_CAPTURED || latest(startOf(slot), last) == NOT_CAPTURED) {
+			return NOT_CAPTURED;
+		}
+		return last + 1;
+	}
+
+	private int latest(int operation, int lastPosition) {
+		for(int i = size - 1; i >= 0; --i) {
+			if(operations[i] == operation && positions[i] <= lastPosition) {
+				return positions[i];
+			}
+		}
+		return NOT_CAPTURED;
+	}
+
+}
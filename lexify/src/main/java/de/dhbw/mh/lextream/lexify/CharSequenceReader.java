@@ -0,0 +1,38 @@
+package de.dhbw.mh.lextream.lexify;
+
+import java.io.Reader;
+
+/**
+ * Reads the characters of a {@link CharSequence} in chunks, so a lexer
+ * instance can scan e.g. a {@code StringBuilder} or a {@code CharBuffer}
+ * without copying it into a string first.
+ */
+final class CharSequenceReader extends Reader {
+
+	private final CharSequence text;
+	private int position = 0;
+
+	CharSequenceReader(CharSequence text) {
+		this.text = text;
+	}
+
+	@Override
+	public int read(char[] buffer, int offset, int length) {
+		int remaining = text.length() - position;
+		if(remaining <= 0) {
+			return (length == 0) ? 0 : -1;
+		}
+		int count = Math.min(length, remaining);
+		for(int index = 0; index < count; ++index) {
+			buffer[offset + index] = text.charAt(position + index);
+		}
+		position += count;
+		return count;
+	}
+
+	@Override
+	public void close() {
+		// nothing to release
+	}
+
+}
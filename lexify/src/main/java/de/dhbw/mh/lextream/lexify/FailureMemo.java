@@ -0,0 +1,101 @@
+package de.dhbw.mh.lextream.lexify;
+
+import java.util.Arrays;
+
+/**
+ * Remembers (state, position) pairs from which scanning is known to fail,
+ * i.e. to reach the error state without passing another accepting state.
+ *
+ * <p>The pairs are kept in an open-addressing hash set of {@code long} keys,
+ * so recording and looking up a pair does not allocate.</p>
+ */
+class FailureMemo {
+
+	private static final long EMPTY = -1L;
+	private static final int INITIAL_CAPACITY = 1 << 8;
+
+	private long[] keys = newTable(INITIAL_CAPACITY);
+	private int size = 0;
+	private int lastPosition = -1;
+
+	private static long[] newTable(int capacity) {
+		long[] table = new long[capacity];
+		Arrays.fill(table, EMPTY);
+		return table;
+	}
+
+	private static long keyOf(int state, int position) {
+		return ((long) position << 32) | (state & 0xFFFFFFFFL);
+	}
+
+	private static int slotOf(long key, int mask) {
+		long hash = key * 0x9E3779B97F4A7C15L;
+		return (int) (hash >>> 32) & mask;
+	}
+
+	boolean contains(int state, int position) {
+		if(position > lastPosition) {
+			return false;
+		}
+		long key = keyOf(state, position);
+		int mask = keys.length - 1;
+		for(int slot = slotOf(key, mask); keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+			if(keys[slot] == key) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	void add(int state, int position) {
+		if(2 * (size + 1) > keys.length) {
+			grow();
+		}
+		if(insert(keys, keyOf(state, position))) {
+			++size;
+		}
+		lastPosition = Math.max(lastPosition, position);
+	}
+
+	/**
+	 * Forgets all pairs if none of them lies at or behind the given position,
+	 * because scanning never moves backwards.
+	 *
+	 * @param position the position where the next scan starts
+	 */
+	void discardBefore(int position) {
+		if(size > 0 && position > lastPosition) {
+			// keep the cost of clearing proportional to the number of pairs added
+			if(keys.length > INITIAL_CAPACITY && 8 * size < keys.length) {
+				keys = newTable(INITIAL_CAPACITY);
+			} else {
+				Arrays.fill(keys, EMPTY);
+			}
+			size = 0;
+		}
+	}
+
+	private static boolean insert(long[] table, long key) {
+		int mask = table.length - 1;
+		int slot = slotOf(key, mask);
+		while(table[slot] != EMPTY) {
+			if(table[slot] == key) {
+				return false;
+			}
+			slot = (slot + 1) & mask;
+		}
+		table[slot] = key;
+		return true;
+	}
+
+	private void grow() {
+		long[] table = newTable(keys.length * 2);
+		for(long key : keys) {
+			if(key != EMPTY) {
+				insert(table, key);
+			}
+		}
+		keys = table;
+	}
+
+}
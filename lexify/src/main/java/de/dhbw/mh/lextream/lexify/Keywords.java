@@ -0,0 +1,73 @@
+package de.dhbw.mh.lextream.lexify;
+
+import java.util.List;
+
+import de.dhbw.mh.lextream.lexport.KeywordTable;
+
+/**
+ * Reclassifies tokens whose lexeme is a keyword, after a general rule such
+ * as the one of identifiers has matched them. The lookup in the perfect hash
+ * table replaces one automaton per keyword, which would multiply the states
+ * of the fused automaton.
+ */
+final class Keywords {
+
+	private final KeywordTable table;
+	private final boolean[] general;
+	private final int[] typeOfSlot;
+
+	private Keywords(KeywordTable table, boolean[] general, int[] typeOfSlot) {
+		this.table = table;
+		this.general = general;
+		this.typeOfSlot = typeOfSlot;
+	}
+
+	/**
+	 * @param tokenTypes the token types of the lexer, including those of the keywords
+	 */
+	static Keywords of(KeywordTable table, List<String> tokenTypes) {
+		boolean[] general = new boolean[tokenTypes.size()];
+		for(int typeId = 0; typeId < general.length; ++typeId) {
+			general[typeId] = table.getGeneralTypes().contains(tokenTypes.get(typeId));
+		}
+		int[] typeOfSlot = new int[table.size()];
+		for(int slot = 0; slot < typeOfSlot.length; ++slot) {
+			typeOfSlot[slot] = tokenTypes.indexOf(table.typeAt(slot));
+		}
+		return new Keywords(table, general, typeOfSlot);
+	}
+
+	/**
+	 * Checks whether tokens of the given type may be keywords.
+	 */
+	boolean mayReclassify(int typeId) {
+		return typeId >= 0 && general[typeId];
+	}
+
+	/**
+	 * Returns the type of a keyword if the lexeme is one, or else the given type.
+	 *
+	 * @param text  the characters containing the lexeme
+	 * @param start the index of the first character of the lexeme
+	 * @param end   the index right after the last character of the lexeme
+	 */
+	int reclassify(int typeId, CharSequence text, int start, int end) {
+		if(!mayReclassify(typeId)) {
+			return typeId;
+		}
+		int slot = table.slotOf(text, start, end);
+		return (slot < 0) ? typeId : typeOfSlot[slot];
+	}
+
+	/**
+	 * @see #reclassify(int, CharSequence, int, int)
+	 */
+	int reclassify(int typeId, char[] text, int start, int end) {
+		if(!mayReclassify(typeId)) {
+			return typeId;
+		}
+		int slot = table.slotOf(text, start, end);
+		return (slot < 0) ? typeId : typeOfSlot[slot];
+	}
+
+}
@@ -0,0 +1,99 @@
+package de.dhbw.mh.lextream.lexify;
+
+/**
+ * Interns lexemes straight from the scan buffer, so that a lexeme seen
+ * before is returned as the same string without copying its characters.
+ *
+ * <p>The table is set associative: a hash of the characters selects a set
+ * of a few slots, which are probed in turn. Once all slots of a set are
+ * taken, a clock sweep over the set evicts a lexeme that has not been hit
+ * since the hand last passed it, so frequent lexemes such as common
+ * identifiers stay while rare ones come and go. The table thus never grows
+ * beyond its capacity. Lexemes longer than {@link #MAX_LENGTH} are rarely
+ * repeated and not interned at all.</p>
+ */
+final class LexemeTable {
+
+	static final int MAX_LENGTH = 64;
+	private static final int WAYS = 4;
+
+	private final String[] lexemes;
+	private final int[] hashes;
+	private final boolean[] referenced;
+	private final int[] hands;
+	private final int setMask;
+
+	/**
+	 * @param capacity the maximum number of lexemes, rounded up to a power of two
+	 */
+	LexemeTable(int capacity) {
+		int neededSets = (capacity + WAYS - 1) / WAYS;
+		int sets = (neededSets <= 1) ? 1 : Integer.highestOneBit(neededSets - 1) << 1;
+		this.lexemes = new String[sets * WAYS];
+		this.hashes = new int[sets * WAYS];
+		this.referenced = new boolean[sets * WAYS];
+		this.hands = new int[sets];
+		this.setMask = sets - 1;
+	}
+
+	/**
+	 * Returns the canonical string of the characters in {@code [start, end)}.
+	 */
+	String intern(char[] chars, int start, int end) {
+		if(end - start > MAX_LENGTH) {
+			return new String(chars, start, end - start);
+		}
+		int hash = 0;
+		for(int index = start; index < end; ++index) {
+			hash = 31 * hash + chars[index];
+		}
+		int set = (hash ^ (hash >>> 16)) & setMask;
+		int first = set * WAYS;
+		for(int slot = first; slot < first + WAYS; ++slot) {
+			String lexeme = lexemes[slot];
+			if(lexeme == null) {
+				// slots are never emptied, so the rest of the set is free as well
+				return store(slot, hash, chars, start, end);
+			}
+			if(hashes[slot] == hash && matches(lexeme, chars, start, end)) {
+				referenced[slot] = true;
+				return lexeme;
+			}
+		}
+		int hand = hands[set];
+		while(referenced[first + hand]) {
+			referenced[first + hand] = false;
+			hand = (hand + 1) % WAYS;
+		}
+		hands[set] = (hand + 1) % WAYS;
+		return store(first + hand, hash, chars, start, end);
+	}
+
+	private String store(int slot, int hash, char[] chars, int start, int end) {
+		String lexeme = new String(chars, start, end - start);
+		lexemes[slot] = lexeme;
+		hashes[slot] = hash;
+		referenced[slot] = false;
+		return lexeme;
+	}
+
+	private static boolean matches(String lexeme, char[] chars, int start, int end) {
+		if(lexeme.length() != end - start) {
+			return false;
+		}
+		for(int i = 0; i < lexeme.length(); ++i) {
+			if(lexeme.charAt(i) != chars[start + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the number of lexemes the table can hold.
+	 */
+	int capacity() {
+		return lexemes.length;
+	}
+
+}
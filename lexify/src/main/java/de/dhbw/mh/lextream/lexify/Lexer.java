@@ -1,159 +1,1463 @@
 package de.dhbw.mh.lextream.lexify;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import de.dhbw.mh.lextream.lexport.DfaModel;
+import de.dhbw.mh.lextream.lexport.KeywordTable;
 import de.dhbw.mh.lextream.lexport.LexerSpecification;
 import de.dhbw.mh.redeggs.CodePointRange;
 
 /**
  * Lexer is responsible for creating instances that tokenize input strings
- * using a set of deterministic finite automata.
+ * or streams using a set of deterministic finite automata.
+ *
+ * <p>A lexer only holds the compiled, immutable tables. All scanning state
+ * lives in the instances it creates, so a single lexer can be shared by any
+ * number of threads, each tokenizing its own input.</p>
  */
 public class Lexer {
 
-	private final LexicalAutomaton.Instance[] automata;
-	private final int[] precedence;
-	private final String[] tokenTypes;
+	private static final int DEFAULT_BUFFER_SIZE = 1 << 13;
 
-	private Lexer(LexicalAutomaton.Instance[] automata, String[] tokenTypes) {
-		this.automata = automata;
-		this.tokenTypes = tokenTypes;
-		this.precedence = latestWins(automata.length);
+	/**
+	 * The token type of unexpected sequences, if the lexer recovers from them.
+	 *
+	 * @see Options#recoverFromErrors(ErrorRecovery)
+	 */
+	public static final String ERROR = "ERROR";
+
+	private final Tables tables;
+	private final TokenAction[] actions;
+
+	private Lexer(Tables tables, TokenAction[] actions) {
+		this.tables = tables;
+		this.actions = actions;
+	}
+
+	private static int[] latestWins(int length) {
+		int[] precedence = new int[length];
+		for (int i = 0; i < length; i++) {
+			precedence[i] = i;
+		}
+		return precedence;
+	}
+
+	/**
+	 * Creates a new lexer instance for tokenizing the specified input.
+	 * 
+	 * @param input The input string to tokenize.
+	 * @return A new lexer instance for this input.
+	 */
+	public Instance newInstance(String input) {
+		return new Instance(input);
+	}
+
+	/**
+	 * Creates a new lexer instance for tokenizing the specified input, e.g. a
+	 * {@code StringBuilder}. The characters are read in chunks rather than
+	 * copied into a string first; unlike with {@link #newInstance(Reader)},
+	 * tokens are not limited to the maximum token length.
+	 *
+	 * @param input The input to tokenize, which must not change while it is tokenized.
+	 * @return A new lexer instance for this input.
+	 */
+	public Instance newInstance(CharSequence input) {
+		if(input instanceof String) {
+			return new Instance((String) input);
+		}
+		return new Instance(new CharSequenceReader(input), Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Creates a new lexer instance that tokenizes the input while reading it.
+	 * Only the characters of the current token are kept in memory, so the
+	 * first tokens are available before the input has been read completely.
+	 * The reader is not closed by the lexer.
+	 *
+	 * @param input The reader providing the input to tokenize.
+	 * @return A new lexer instance for this input.
+	 */
+	public Instance newInstance(Reader input) {
+		return new Instance(input);
+	}
+
+	/**
+	 * Creates a new lexer instance that tokenizes the input while reading it.
+	 * The stream is not closed by the lexer.
+	 *
+	 * @param input   The stream providing the input to tokenize.
+	 * @param charset The charset used to decode the stream.
+	 * @return A new lexer instance for this input.
+	 * @see #newInstance(Reader)
+	 */
+	public Instance newInstance(InputStream input, Charset charset) {
+		return new Instance(new InputStreamReader(input, charset));
+	}
+
+	/**
+	 * Creates a new lexer instance that is fed the input in chunks of bytes,
+	 * e.g. as they arrive on a non-blocking channel. Each token is passed to
+	 * the consumer as soon as no further input can extend it.
+	 *
+	 * @param charset The charset used to decode the input.
+	 * @param tokens  The consumer receiving the tokens in input order.
+	 * @return A new lexer instance waiting for input.
+	 */
+	public PushInstance newPushInstance(Charset charset, Consumer<Token> tokens) {
+		return new PushInstance(charset, tokens);
+	}
+
+	/**
+	 * Creates a processor that tokenizes the chunks of bytes published by an
+	 * asynchronous source, like a {@link PushInstance}, and publishes the
+	 * tokens to a single subscriber. Chunks are requested from the source only
+	 * as long as the subscriber requests more tokens than the chunks so far
+	 * provided, so a slow subscriber holds back the source instead of tokens
+	 * piling up. An unexpected sequence in the input cancels the source and
+	 * fails the subscriber with an {@link IllegalStateException}.
+	 *
+	 * @param charset The charset used to decode the input.
+	 * @return A processor to subscribe to the source of bytes.
+	 */
+	public Flow.Processor<ByteBuffer, Token> newPublisher(Charset charset) {
+		return new TokenPublisher(this, charset);
+	}
+
+	/**
+	 * Creates a new lexer instance that tokenizes UTF-8 encoded input without
+	 * decoding it. The bytes between the position and the limit of the buffer
+	 * are walked by a byte-level automaton, so a {@link java.nio.MappedByteBuffer}
+	 * can be tokenized without copying the file onto the heap. The position of
+	 * the buffer is not changed.
+	 *
+	 * @param utf8 The UTF-8 encoded input to tokenize.
+	 * @return A new lexer instance for this input.
+	 * @throws IllegalStateException if the rules of this lexer are not fused,
+	 *                               or if the lexer recovers from errors or has token actions
+	 */
+	public Utf8Instance newInstance(ByteBuffer utf8) {
+		return new Utf8Instance(utf8, utf8Automaton());
+	}
+
+	private Utf8Automaton utf8Automaton() {
+		if(tables.fused == null) {
+			throw new IllegalStateException("Scanning UTF-8 input requires the rules to be fused.");
+		}
+		requireScanOnly("Scanning UTF-8 input");
+		return tables.utf8Automaton();
+	}
+
+	/**
+	 * Tokenizes the input in parallel on the common fork/join pool.
+	 *
+	 * @param input The input to tokenize.
+	 * @return The same tokens as a sequential instance would produce.
+	 * @see #tokenizeParallel(CharSequence, ForkJoinPool)
+	 */
+	public TokenBuffer tokenizeParallel(CharSequence input) {
+		return tokenizeParallel(input, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Tokenizes a large input by splitting it into chunks that are scanned
+	 * in parallel, each from a guessed token boundary. The chunks are then
+	 * joined where their token streams agree, so the result is identical to
+	 * that of a sequential instance.
+	 *
+	 * @param input The input to tokenize.
+	 * @param pool  The pool whose threads scan the chunks.
+	 * @return The same tokens as a sequential instance would produce.
+	 * @throws IllegalStateException if the rules of this lexer are not fused,
+	 *                               if the lexer recovers from errors or has token actions,
+	 *                               or if the input contains an unexpected sequence
+	 */
+	public TokenBuffer tokenizeParallel(CharSequence input, ForkJoinPool pool) {
+		return parallelTokenizer().tokenize(input, pool);
+	}
+
+	/**
+	 * Returns the tokens of the input as a sequential stream, scanned lazily
+	 * while the stream is consumed. A sequential stream walks the tokens with
+	 * an {@link Instance}, so it yields exactly the tokens of
+	 * {@link #newInstance(CharSequence)}; matches of skip rules are left out.
+	 *
+	 * <p>Made parallel, the stream splits the input right after synchronizing
+	 * symbols, at which a token always ends, so all cores can count, filter
+	 * or collect tokens without the tokens of the whole input being collected
+	 * first. The parts are scanned like by {@link #tokenizeParallel(CharSequence)},
+	 * so the input is only split if the rules are fused, and neither with
+	 * {@link TokenAction}s nor with error recovery; otherwise a parallel
+	 * stream is scanned sequentially.</p>
+	 *
+	 * @param input The input to tokenize, which must not change while the stream is consumed.
+	 * @return A stream of the tokens, in input order.
+	 */
+	public Stream<Token> stream(CharSequence input) {
+		boolean splittable = tables.fused != null && actions == null && tables.recovery == ErrorRecovery.THROW;
+		return StreamSupport.stream(new TokenSpliterator(this, tables.fused, tables.alphabet, tokenTypes(), tables.skipped,
+				tables.keywords, splittable ? parallelTokenizer() : null, input, 0, input.length()), false);
+	}
+
+	/**
+	 * Updates the tokens of a text after an edit, e.g. a keystroke in an
+	 * editor. Only the tokens around the edit are scanned again: scanning
+	 * starts at the last token boundary before the edit that the edit cannot
+	 * affect, and stops as soon as a token starts where an old token started,
+	 * shifted by the change in length. All other tokens are taken over.
+	 *
+	 * @param previous The tokens of the text before the edit, as returned by
+	 *                 {@link #tokenizeParallel(CharSequence)}, by {@link #tokenizeAll(List)}
+	 *                 for this text alone, or by this method.
+	 * @param text     The text after the edit.
+	 * @param offset   The offset at which the edit starts.
+	 * @param removed  The number of characters removed at the offset.
+	 * @param inserted The number of characters inserted at the offset, which
+	 *                 are now at {@code [offset, offset + inserted)} in the text.
+	 * @return The same tokens as tokenizing the edited text from scratch.
+	 * @throws IllegalArgumentException if the previous tokens are of several inputs,
+	 *                                  or if the edit does not fit into the text
+	 * @throws IllegalStateException if the rules of this lexer are not fused,
+	 *                               if the lexer recovers from errors or has token actions,
+	 *                               or if the text contains an unexpected sequence
+	 */
+	public TokenBuffer relex(TokenBuffer previous, CharSequence text, int offset, int removed, int inserted) {
+		if(tables.fused == null) {
+			throw new IllegalStateException("Relexing requires the rules to be fused.");
+		}
+		requireScanOnly("Relexing");
+		if(previous.numberOfInputs() != 1) {
+			throw new IllegalArgumentException(String.format(
+					"Expected the tokens of a single input, but got %d inputs.", previous.numberOfInputs()));
+		}
+		if(offset < 0 || removed < 0 || inserted < 0 || offset + inserted > text.length()) {
+			throw new IllegalArgumentException(String.format(
+					"Edit at %d removing %d and inserting %d characters does not fit a text of length %d.",
+					offset, removed, inserted, text.length()));
+		}
+		return new Relexer(tables.fused, tables.alphabet, tokenTypes(), tables.skipped, tables.keywords, parallelTokenizer())
+				.relex(previous, text, offset, removed, inserted);
+	}
+
+	/**
+	 * Tokenizes many inputs, typically short ones such as the fields of a
+	 * record, in one go. The automaton is walked over one input after the
+	 * other in a single loop, which avoids setting up an instance per input.
+	 *
+	 * @param inputs The inputs to tokenize.
+	 * @return The tokens of all inputs, in input order, with offsets relative to each input.
+	 * @throws IllegalStateException if the rules of this lexer are not fused,
+	 *                               if the lexer recovers from errors or has token actions,
+	 *                               or if an input contains an unexpected sequence
+	 */
+	public TokenBuffer tokenizeAll(List<? extends CharSequence> inputs) {
+		CharSequence[] sources = inputs.toArray(new CharSequence[0]);
+		int[] firstPositions = new int[sources.length];
+		int[] limits = new int[sources.length];
+		for(int i = 0; i < sources.length; ++i) {
+			limits[i] = sources[i].length();
+		}
+		return batchTokenizer(sources, firstPositions, limits).tokenize();
+	}
+
+	/**
+	 * Tokenizes the consecutive fields of a text in one go, like
+	 * {@link #tokenizeAll(List)}. Field {@code i} spans from
+	 * {@code boundaries[i]} up to {@code boundaries[i + 1]}.
+	 *
+	 * @param text       The text containing all fields.
+	 * @param boundaries The offsets at which the fields start, followed by the end of the last field.
+	 * @return The tokens of all fields, in field order, with offsets relative to the text.
+	 * @throws IllegalStateException if the rules of this lexer are not fused,
+	 *                               if the lexer recovers from errors or has token actions,
+	 *                               or if a field contains an unexpected sequence
+	 */
+	public TokenBuffer tokenizeAll(CharSequence text, int[] boundaries) {
+		int numberOfFields = Math.max(0, boundaries.length - 1);
+		CharSequence[] sources = new CharSequence[numberOfFields];
+		Arrays.fill(sources, text);
+		int[] firstPositions = Arrays.copyOf(boundaries, numberOfFields);
+		int[] limits = Arrays.copyOfRange(boundaries, boundaries.length - numberOfFields, boundaries.length);
+		return batchTokenizer(sources, firstPositions, limits).tokenize();
+	}
+
+	private BatchTokenizer batchTokenizer(CharSequence[] sources, int[] firstPositions, int[] limits) {
+		if(tables.fused == null) {
+			throw new IllegalStateException("Batch tokenization requires the rules to be fused.");
+		}
+		requireScanOnly("Batch tokenization");
+		return new BatchTokenizer(tables.fused, tables.alphabet, tokenTypes(), tables.skipped, tables.keywords,
+				sources, firstPositions, limits);
+	}
+
+	private ParallelTokenizer parallelTokenizer() {
+		if(tables.fused == null) {
+			throw new IllegalStateException("Parallel tokenization requires the rules to be fused.");
+		}
+		requireScanOnly("Parallel tokenization");
+		return tables.parallelTokenizer();
+	}
+
+	/**
+	 * Rejects lexers that recover from errors or have token actions for the
+	 * ways of tokenizing that only scan, which could neither report the same
+	 * error tokens nor call the actions like an instance.
+	 */
+	private void requireScanOnly(String scanning) {
+		if(tables.recovery != ErrorRecovery.THROW) {
+			throw new IllegalStateException(String.format("%s does not support recovering from errors.", scanning));
+		}
+		if(actions != null) {
+			throw new IllegalStateException(String.format("%s does not support token actions.", scanning));
+		}
+	}
+
+	/**
+	 * Returns the token types of this lexer, indexed by their type id.
+	 *
+	 * @return An unmodifiable list to look up the type of a type id.
+	 */
+	public List<String> tokenTypes() {
+		return List.of(tables.tokenTypes);
+	}
+
+	/**
+	 * Returns a lexer with the same rules that calls the given action on every
+	 * match of a token type, including matches of skip rules. Actions are
+	 * called by the instances from {@link #newInstance(String)},
+	 * {@link #newInstance(CharSequence)}, {@link #newInstance(Reader)} and
+	 * {@link #newPushInstance(Charset, Consumer)}, and thus by streams and
+	 * publishers, on the thread that tokenizes the input. {@link #tokenizeParallel(CharSequence)}, {@link #tokenizeAll(List)},
+	 * {@link #relex(TokenBuffer, CharSequence, int, int, int)} and UTF-8
+	 * instances only scan, so they reject a lexer with actions.
+	 *
+	 * @param tokenType The token type whose matches are handled.
+	 * @param action    The action to call, replacing an earlier one for this type.
+	 * @return A new lexer sharing the compiled tables of this one.
+	 * @throws IllegalArgumentException if the lexer has no such token type
+	 */
+	public Lexer withAction(String tokenType, TokenAction action) {
+		int typeId = Arrays.asList(tables.tokenTypes).indexOf(tokenType);
+		if(typeId < 0) {
+			throw new IllegalArgumentException(String.format("Unknown token type '%s'.", tokenType));
+		}
+		TokenAction[] extended = (actions == null) ? new TokenAction[tables.tokenTypes.length] : actions.clone();
+		extended[typeId] = action;
+		return new Lexer(tables, extended);
+	}
+
+	/**
+	 * Looks up a capture group, whose offsets are then reported by
+	 * {@link Instance#captureStart(int)} and {@link Instance#captureEnd(int)}.
+	 * The groups are defined by tagged transitions of the rule automata.
+	 *
+	 * @param tokenType The token type whose rule defines the group.
+	 * @param group     The name of the group.
+	 * @return The id of the group.
+	 * @throws IllegalArgumentException if the token type has no such group
+	 */
+	public int captureId(String tokenType, String group) {
+		int typeId = Arrays.asList(tables.tokenTypes).indexOf(tokenType);
+		int index = (typeId < 0) ? -1 : Arrays.asList(tables.captureGroups[typeId]).indexOf(group);
+		if(index < 0) {
+			throw new IllegalArgumentException(String.format("Token type '%s' has no capture group '%s'.", tokenType, group));
+		}
+		return tables.firstSlots[typeId] + index;
+	}
+
+	/**
+	 * Checks whether matches of the given token type are discarded.
+	 *
+	 * @param typeId A type id into {@link #tokenTypes()}, or a negative value for no match.
+	 * @return True if the type belongs to a skip rule.
+	 */
+	public boolean isSkipped(int typeId) {
+		return tables.skipped != null && typeId >= 0 && tables.skipped[typeId];
+	}
+
+	/**
+	 * Checks whether all rules of this lexer have been fused into a single automaton.
+	 *
+	 * @return True if input is scanned by one product automaton, false if every
+	 *         rule automaton is stepped on its own.
+	 */
+	public boolean isFused() {
+		return tables.fused != null;
 	}
 
-	private static int[] latestWins(int length) {
-		int[] precedence = new int[length];
-		for (int i = 0; i < length; i++) {
-			precedence[i] = i;
+
+	/**
+	 * Lexer instance that holds state while tokenizing an input.
+	 *
+	 * <p>The input is scanned from a buffer. If the input is read from a stream,
+	 * the buffer only keeps the characters from the start of the current token
+	 * onwards and is refilled whenever the scan reaches its end, so memory stays
+	 * bounded by the maximum token length regardless of the input size.</p>
+	 *
+	 * <p>The rules match code points, so a surrogate pair is classified as one
+	 * code point, as in UTF-8 input, and a surrogate without its partner on its
+	 * own. Token offsets still count characters.</p>
+	 *
+	 * <p>An instance is not thread-safe; it is meant to be used by the thread
+	 * tokenizing its input.</p>
+	 */
+	public class Instance {
+		private Reader source;
+		private char[] buffer;
+		private int bufferStart = 0;
+		private int bufferEnd;
+		private final int[] activeRules = new int[tables.rules.length];
+		private final int[] ruleStates = new int[tables.rules.length];
+		private final FailureMemo failures = (tables.linearTime && tables.fused != null) ? new FailureMemo() : null;
+		private int[] trail = new int[16];
+		private int numberOfActiveRules = 0;
+		private int lastAcceptedPosition = -1;
+		private int startOfToken = -1;
+		private int tokenId = -1;
+		private int position = 0;
+		private int state = LexicalAutomaton.ERROR_STATE;
+		private final Lexeme lexeme = new Lexeme();
+		private final Window window = (actions == null) ? null : new Window();
+		private final Captures captures = (tables.typeOfSlot.length == 0) ? null : new Captures();
+		private final LexemeTable interned = (tables.internedLexemes == 0) ? null : new LexemeTable(tables.internedLexemes);
+		private final LineIndex lines = tables.trackLines ? new LineIndex() : null;
+		private int indexedUpTo = 0;
+		private int numberOfErrors = 0;
+		private final int[] lookaheadTypes = new int[tables.maxLookahead];
+		private final int[] lookaheadStarts = new int[tables.maxLookahead];
+		private final int[] lookaheadEnds = new int[tables.maxLookahead];
+		private int firstLookahead = 0;
+		private int numberOfLookaheads = 0;
+		private boolean pending = false;
+		private boolean inputEnded;
+		private final int maxTokenLength;
+
+		private Instance(String input) {
+			this.source = null;
+			this.buffer = input.toCharArray();
+			this.bufferEnd = buffer.length;
+			this.inputEnded = true;
+			this.maxTokenLength = buffer.length;
+		}
+
+		private Instance(Reader source) {
+			this(source, tables.maxTokenLength);
+		}
+
+		/**
+		 * @param maxTokenLength the number of characters the buffer may grow to
+		 */
+		private Instance(Reader source, int maxTokenLength) {
+			this.source = source;
+			this.buffer = new char[Math.min(DEFAULT_BUFFER_SIZE, maxTokenLength)];
+			this.bufferEnd = 0;
+			this.inputEnded = false;
+			this.maxTokenLength = maxTokenLength;
+		}
+
+		private Instance() {
+			this((Reader) null);
+		}
+
+		/**
+		 * Returns the most recently accepted token.
+		 *
+		 * @return A Token object representing the matched lexeme.
+		 * @throws IllegalStateException if no valid token was accepted
+		 */
+		public Token getToken() {
+			requireToken();
+			return new Token(
+					tables.tokenTypes[tokenId],
+					lexemeOf(startOfToken, lastAcceptedPosition + 1),
+					startOfToken,
+					lastAcceptedPosition + 1
+			);
+		}
+
+		/**
+		 * Copies the characters of a buffered range, or looks them up if lexemes are interned.
+		 */
+		private String lexemeOf(int start, int end) {
+			if(interned != null) {
+				return interned.intern(buffer, start - bufferStart, end - bufferStart);
+			}
+			return new String(buffer, start - bufferStart, end - start);
+		}
+
+		private void requireToken() {
+			if(tokenId < 0 || tokenId >= tables.tokenTypes.length) {
+				String sequence = lexeme.toString();
+				throw new IllegalStateException(String.format("Unexpected sequence '%s'", sequence));
+			}
+		}
+
+
+		/**
+		 * Moves the cursor to the next token. Unlike {@link #getToken()}, the
+		 * cursor methods allocate nothing per token: the type is reported as
+		 * an id into {@link Lexer#tokenTypes()}, and the lexeme as a view of
+		 * the input.
+		 *
+		 * @return True if the cursor moved to the next token, false if the input is exhausted.
+		 * @throws IllegalStateException if the input contains an unexpected sequence
+		 */
+		public boolean next() {
+			if(completed()) {
+				return false;
+			}
+			advance();
+			requireToken();
+			return true;
+		}
+
+		/**
+		 * Returns the type id of the current token.
+		 */
+		public int typeId() {
+			return tokenId;
+		}
+
+		/**
+		 * Returns the offset of the first character of the current token.
+		 */
+		public int start() {
+			return startOfToken;
+		}
+
+		/**
+		 * Returns the offset right after the last character of the current token.
+		 */
+		public int end() {
+			return lastAcceptedPosition + 1;
+		}
+
+		/**
+		 * Returns the characters of the current token. The returned sequence is
+		 * a view that changes with the cursor; it must be copied, e.g. with
+		 * {@code toString()}, to be kept beyond the current token.
+		 */
+		public CharSequence lexeme() {
+			return lexeme;
+		}
+
+		/**
+		 * Returns the line starts of the input read so far, to resolve offsets
+		 * into line and column numbers. The index is completed up to the end
+		 * of the buffered input on each call.
+		 *
+		 * @throws IllegalStateException if lines are not tracked, see {@link Options#trackLines(boolean)}
+		 */
+		public LineIndex lines() {
+			if(lines == null) {
+				throw new IllegalStateException("Lines are not tracked by this lexer.");
+			}
+			indexLinesUpTo(bufferEnd);
+			return lines;
+		}
+
+		/**
+		 * Adds the line starts among the buffered characters before {@code end}
+		 * that have not been indexed yet.
+		 */
+		private void indexLinesUpTo(int end) {
+			final char[] buffer = this.buffer;
+			for(int offset = indexedUpTo; offset < end; ++offset) {
+				if(buffer[offset - bufferStart] == '\n') {
+					lines.addLineStart(offset + 1);
+				}
+			}
+			indexedUpTo = Math.max(indexedUpTo, end);
+		}
+
+		/**
+		 * Returns the offset of the first character of a capture group in the
+		 * current token.
+		 *
+		 * @param captureId The id of the group, see {@link Lexer#captureId(String, String)}.
+		 * @return The offset, or -1 if the token is of another type or the group did not take part in the match.
+		 */
+		public int captureStart(int captureId) {
+			Objects.checkIndex(captureId, tables.typeOfSlot.length);
+			return (tables.typeOfSlot[captureId] == tokenId) ? captures.start(captureId, lastAcceptedPosition) : Captures.NOT_CAPTURED;
+		}
+
+		/**
+		 * Returns the offset right after the last character of a capture group
+		 * in the current token.
+		 *
+		 * @param captureId The id of the group, see {@link Lexer#captureId(String, String)}.
+		 * @return The offset, or -1 if the token is of another type or the group did not take part in the match.
+		 */
+		public int captureEnd(int captureId) {
+			Objects.checkIndex(captureId, tables.typeOfSlot.length);
+			return (tables.typeOfSlot[captureId] == tokenId) ? captures.end(captureId, lastAcceptedPosition) : Captures.NOT_CAPTURED;
+		}
+
+
+		/**
+		 * The characters of the current token, read from the scan buffer.
+		 */
+		private class Lexeme implements CharSequence {
+			@Override
+			public int length() {
+				return lastAcceptedPosition + 1 - startOfToken;
+			}
+
+			@Override
+			public char charAt(int index) {
+				if(index < 0 || index >= length()) {
+					throw new IndexOutOfBoundsException(index);
+				}
+				return buffer[startOfToken - bufferStart + index];
+			}
+
+			@Override
+			public CharSequence subSequence(int start, int end) {
+				return toString().subSequence(start, end);
+			}
+
+			@Override
+			public String toString() {
+				return new String(buffer, startOfToken - bufferStart, length());
+			}
+		}
+
+
+		/**
+		 * The buffered characters, as passed to {@link TokenAction}s.
+		 */
+		private class Window implements CharSequence {
+			@Override
+			public int length() {
+				return bufferEnd - bufferStart;
+			}
+
+			@Override
+			public char charAt(int index) {
+				if(index < 0 || index >= length()) {
+					throw new IndexOutOfBoundsException(index);
+				}
+				return buffer[index];
+			}
+
+			@Override
+			public CharSequence subSequence(int start, int end) {
+				return toString().subSequence(start, end);
+			}
+
+			@Override
+			public String toString() {
+				return new String(buffer, 0, length());
+			}
+		}
+
+
+		/**
+		 * Checks whether the lexer has finished processing all input characters.
+		 * For streamed input, this may block until more input is available.
+		 * If the lexer has skip rules, the matches of these rules are consumed
+		 * first, and the next token is already scanned for {@link #advance()}.
+		 * 
+		 * @return True if no more characters remain to be processed.
+		 * @throws UncheckedIOException if reading the input fails
+		 */
+		public boolean completed() {
+			while(!pending && (lastAcceptedPosition + 1 < bufferEnd || fill())) {
+				if(tables.skipped == null) {
+					return false;
+				}
+				scanToken();
+				pending = !isSkipped(tokenId);
+			}
+			return !pending;
+		}
+
+
+		/**
+		 * Advances the lexer to the next token by consuming input characters
+		 * and updating the best-matching token using precedence and automata states.
+		 * Matches of skip rules are consumed without stopping at them.
+		 *
+		 * @throws IllegalStateException if the token exceeds the maximum token length
+		 * @throws UncheckedIOException if reading the input fails
+		 */
+		public void advance() {
+			if(!pending) {
+				scanToken();
+				if(isSkipped(tokenId)) {
+					// scans on to the next significant token, if there is one
+					completed();
+				}
+			}
+			pending = false;
+		}
+
+
+		private void scanToken() {
+			beginToken();
+			while(!scan() && (fill() || position < bufferEnd)) {
+				// the token continues in the refilled buffer, or at a high surrogate that ends the input
+			}
+			endToken();
+		}
+
+
+		/**
+		 * Starts scanning a new token right after the last accepted one.
+		 */
+		private void beginToken() {
+			position = startOfToken = lastAcceptedPosition + 1;
+			tokenId = -1;
+			numberOfActiveRules = 0;
+			if(tables.fused != null) {
+				state = tables.fused.initialState();
+			}
+			if(failures != null) {
+				failures.discardBefore(startOfToken);
+			}
+			if(captures != null) {
+				captures.clear();
+			}
+		}
+
+
+		/**
+		 * Continues scanning the current token over the buffered characters.
+		 * The scan can be resumed after more characters have been buffered.
+		 *
+		 * @return True if the end of the token has been found, false if the
+		 *         buffered characters are exhausted before.
+		 */
+		private boolean scan() {
+			if(tables.fused != null && captures != null) {
+				return scanFusedTagged();
+			}
+			if(tables.fused != null && failures != null) {
+				return scanFusedMemoized();
+			}
+			if(tables.fused != null) {
+				return scanFused();
+			}
+			return scanRules();
+		}
+
+
+		/**
+		 * Finishes the current token once no more characters can extend it.
+		 */
+		private void endToken() {
+			if(failures != null) {
+				for(int failed = lastAcceptedPosition + 1; failed < position; ++failed) {
+					failures.add(trail[failed - startOfToken], failed);
+				}
+			}
+			if(tables.keywords != null) {
+				tokenId = tables.keywords.reclassify(tokenId, buffer, startOfToken - bufferStart, lastAcceptedPosition + 1 - bufferStart);
+			}
+			if(tokenId == LexicalAutomaton.NO_TOKEN && tables.errorType >= 0) {
+				recover();
+			}
+			if(window != null && tokenId >= 0 && actions[tokenId] != null) {
+				actions[tokenId].matched(window, startOfToken - bufferStart, lastAcceptedPosition + 1 - bufferStart);
+			}
+		}
+
+
+		/**
+		 * Turns the unexpected sequence at the start of the token into an error
+		 * token: either its first code point, or all characters up to the next
+		 * one that some rule can start a token with.
+		 */
+		private void recover() {
+			tokenId = tables.errorType;
+			++numberOfErrors;
+			int end = startOfToken + Character.charCount(readCodePointAt(startOfToken));
+			if(tables.recovery == ErrorRecovery.UP_TO_NEXT_START) {
+				while(end < bufferEnd || fill()) {
+					int codePoint = readCodePointAt(end);
+					if(tables.startingRules[tables.alphabet.classOf(codePoint)].length > 0) {
+						break;
+					}
+					end += Character.charCount(codePoint);
+				}
+			}
+			lastAcceptedPosition = end - 1;
+		}
+
+		/**
+		 * Returns the code point starting at a buffered position. A surrogate
+		 * pair is one code point, whereas a surrogate without its partner is
+		 * classified on its own, like by {@link Character#codePointAt(char[], int, int)}.
+		 *
+		 * @return The code point, or -1 if a high surrogate ends the buffered
+		 *         characters and its low surrogate may still follow.
+		 */
+		private int codePointAt(int position) {
+			char c = buffer[position - bufferStart];
+			if(!Character.isHighSurrogate(c)) {
+				return c;
+			}
+			if(position + 1 == bufferEnd) {
+				return inputEnded ? c : -1;
+			}
+			char low = buffer[position + 1 - bufferStart];
+			return Character.isLowSurrogate(low) ? Character.toCodePoint(c, low) : c;
+		}
+
+		/**
+		 * Returns the code point starting at a buffered position, reading more
+		 * input if the position holds the first half of a split surrogate pair.
+		 */
+		private int readCodePointAt(int position) {
+			int codePoint = codePointAt(position);
+			if(codePoint < 0 && !fill()) {
+				// the rest is pushed later, so the surrogate is classified on its own
+				return buffer[position - bufferStart];
+			}
+			return (codePoint < 0) ? codePointAt(position) : codePoint;
+		}
+
+		/**
+		 * Returns the number of error tokens so far. Without error recovery,
+		 * the lexer fails on the first unexpected sequence instead.
+		 *
+		 * @see Options#recoverFromErrors(ErrorRecovery)
+		 */
+		public int numberOfErrors() {
+			return numberOfErrors;
+		}
+
+
+		/**
+		 * Reads more characters from the source into the buffer.
+		 *
+		 * @return True if more characters are available, false at the end of the input.
+		 * @throws IllegalStateException if the token exceeds the maximum token length
+		 * @throws UncheckedIOException if reading the input fails
+		 */
+		private boolean fill() {
+			if(source == null) {
+				return false;
+			}
+			makeRoom();
+			try {
+				int used = bufferEnd - bufferStart;
+				int read;
+				do {
+					read = source.read(buffer, used, buffer.length - used);
+				} while(read == 0);
+				if(read < 0) {
+					source = null;
+					inputEnded = true;
+					return false;
+				}
+				bufferEnd += read;
+				return true;
+			} catch(IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+
+		/**
+		 * Makes room at the end of the buffer. All characters before the start of
+		 * the current token, or of the first token in the lookahead, are
+		 * discarded first, and the buffer grows only if the rest does not fit.
+		 *
+		 * @throws IllegalStateException if the token exceeds the maximum token length
+		 */
+		private void makeRoom() {
+			int firstNeeded = (numberOfLookaheads > 0) ? lookaheadStarts[firstLookahead] : startOfToken;
+			int keepFrom = Math.max(firstNeeded, bufferStart);
+			if(lines != null) {
+				// the discarded characters are indexed while they are still at hand
+				indexLinesUpTo(keepFrom);
+			}
+			if(keepFrom > bufferStart) {
+				System.arraycopy(buffer, keepFrom - bufferStart, buffer, 0, bufferEnd - keepFrom);
+				bufferStart = keepFrom;
+			}
+			int used = bufferEnd - bufferStart;
+			if(used == buffer.length) {
+				if(used >= maxTokenLength) {
+					throw new IllegalStateException(String.format(
+							"Token at offset %d exceeds the maximum length of %d characters", startOfToken, maxTokenLength));
+				}
+				buffer = Arrays.copyOf(buffer, (int) Math.min(2L * buffer.length, maxTokenLength));
+			}
+		}
+
+
+		/**
+		 * Scans the longest match with the fused automaton, whose accepting
+		 * states already carry the winning rule. When a transition loops back
+		 * to its origin, the rest of the run is skipped by {@link SelfLoops}.
+		 */
+		private boolean scanFused() {
+			final LexicalAutomaton automaton = tables.fused;
+			final Alphabet alphabet = tables.alphabet;
+			final SelfLoops loops = tables.selfLoops;
+			final char[] buffer = this.buffer;
+			final int offset = bufferStart;
+			int state = this.state;
+			int position = this.position;
+			try {
+				while(position < bufferEnd) {
+					int codePoint = codePointAt(position);
+					if(codePoint < 0) {
+						return false;
+					}
+					int next = automaton.step(state, alphabet.classOf(codePoint));
+					if(next == LexicalAutomaton.ERROR_STATE) {
+						state = next;
+						return true;
+					}
+					// moves onto the low surrogate if the code point is a pair
+					position += Character.charCount(codePoint) - 1;
+					if(next == state && loops != null) {
+						// the state does not change, so only the last position of the run matters
+						position = loops.skip(state, buffer, position + 1 - offset, bufferEnd - offset) + offset - 1;
+					}
+					state = next;
+					if(automaton.accepts(state)) {
+						tokenId = automaton.acceptedToken(state);
+						lastAcceptedPosition = position;
+					}
+					++position;
+				}
+				return false;
+			} finally {
+				this.state = state;
+				this.position = position;
+			}
+		}
+
+
+		/**
+		 * Scans the longest match like {@link #scanFused()}, but remembers each
+		 * (state, position) pair passed after the last accepting position. Such a
+		 * pair cannot lead to a longer match, so a later scan reaching it again
+		 * stops right away. As in Reps' maximal-munch tokenization, this bounds
+		 * the total work by the length of the input times the number of states,
+		 * instead of rescanning the same characters for every token.
+		 */
+		private boolean scanFusedMemoized() {
+			final LexicalAutomaton automaton = tables.fused;
+			final Alphabet alphabet = tables.alphabet;
+			final int start = startOfToken;
+			int state = this.state;
+			int position = this.position;
+			try {
+				while(position < bufferEnd) {
+					int codePoint = codePointAt(position);
+					if(codePoint < 0) {
+						return false;
+					}
+					state = automaton.step(state, alphabet.classOf(codePoint));
+					if(state == LexicalAutomaton.ERROR_STATE || failures.contains(state, position)) {
+						return true;
+					}
+					int last = position + Character.charCount(codePoint) - 1;
+					if(last - start >= trail.length) {
+						trail = Arrays.copyOf(trail, 2 * trail.length);
+					}
+					trail[position - start] = trail[last - start] = state;
+					if(automaton.accepts(state)) {
+						tokenId = automaton.acceptedToken(state);
+						lastAcceptedPosition = last;
+					}
+					position = last + 1;
+				}
+				return false;
+			} finally {
+				this.state = state;
+				this.position = position;
+			}
+		}
+
+
+		/**
+		 * Scans the longest match like {@link #scanFused()}, but logs the tag
+		 * operations of every transition for the capture groups, and stops at
+		 * known failures like {@link #scanFusedMemoized()} in linear-time mode.
+		 */
+		private boolean scanFusedTagged() {
+			final LexicalAutomaton automaton = tables.fused;
+			final Alphabet alphabet = tables.alphabet;
+			final int start = startOfToken;
+			int state = this.state;
+			int position = this.position;
+			try {
+				while(position < bufferEnd) {
+					int codePoint = codePointAt(position);
+					if(codePoint < 0) {
+						return false;
+					}
+					int symbol = alphabet.classOf(codePoint);
+					int last = position + Character.charCount(codePoint) - 1;
+					captures.record(automaton.tagsOf(state, symbol), position, last);
+					state = automaton.step(state, symbol);
+					if(state == LexicalAutomaton.ERROR_STATE) {
+						return true;
+					}
+					if(failures != null) {
+						if(failures.contains(state, position)) {
+							return true;
+						}
+						if(last - start >= trail.length) {
+							trail = Arrays.copyOf(trail, 2 * trail.length);
+						}
+						trail[position - start] = trail[last - start] = state;
+					}
+					if(automaton.accepts(state)) {
+						tokenId = automaton.acceptedToken(state);
+						lastAcceptedPosition = last;
+					}
+					position = last + 1;
+				}
+				return false;
+			} finally {
+				this.state = state;
+				this.position = position;
+			}
+		}
+
+
+		/**
+		 * Scans the longest match by stepping each rule automaton that is still
+		 * alive, starting with those that can start a token with the first symbol.
+		 */
+		private boolean scanRules() {
+			if(position == startOfToken) {
+				int codePoint = (position == bufferEnd) ? -1 : codePointAt(position);
+				if(codePoint < 0) {
+					return false;
+				}
+				activateRulesStartingWith(tables.alphabet.classOf(codePoint));
+			}
+			while(numberOfActiveRules > 0) {
+				int codePoint = (position == bufferEnd) ? -1 : codePointAt(position);
+				if(codePoint < 0) {
+					return false;
+				}
+				int last = position + Character.charCount(codePoint) - 1;
+				processSymbol(tables.alphabet.classOf(codePoint), position, last);
+				position = last + 1;
+			}
+			return true;
+		}
+
+
+		/**
+		 * Resets and activates only those automata that can start a token
+		 * with the given symbol class.
+		 *
+		 * @param symbol The symbol class of the first character of the next token.
+		 */
+		private void activateRulesStartingWith(int symbol) {
+			int[] candidates = tables.startingRules[symbol];
+			for (int k = 0; k < candidates.length; k++) {
+				ruleStates[candidates[k]] = tables.rules[candidates[k]].initialState();
+				activeRules[k] = candidates[k];
+			}
+			numberOfActiveRules = candidates.length;
+		}
+
+
+		/**
+		 * Processes a single symbol across all active automata, updating the match if one is found.
+		 * Automata entering their error state are removed from the active rules.
+		 *
+		 * @param symbol The symbol class of the current code point.
+		 * @param first  The position of the first character of the code point.
+		 * @param last   The position of the last character of the code point.
+		 */
+		private void processSymbol(int symbol, int first, int last) {
+			int k = 0;
+			while (k < numberOfActiveRules) {
+				int i = activeRules[k];
+				if(captures != null && tables.rules[i].isTagged()) {
+					captures.record(tables.rules[i].tagsOf(ruleStates[i], symbol), first, last);
+				}
+				int state = ruleStates[i] = tables.rules[i].step(ruleStates[i], symbol);
+
+				if (state == LexicalAutomaton.ERROR_STATE) {
+					activeRules[k] = activeRules[--numberOfActiveRules];
+					continue;
+				}
+				++k;
+
+				if (!tables.rules[i].accepts(state)) continue;
+
+				if (lastAcceptedPosition == last) {
+					if (tokenId == -1 || tables.precedence[tokenId] < tables.precedence[i]) {
+						tokenId = i;
+					}
+				} else {
+					tokenId = i;
+					lastAcceptedPosition = last;
+				}
+			}
+		}
+
+
+		/**
+		 * Returns the next token and moves past it. Tokens already scanned by
+		 * {@link #peekToken(int)} are taken from the lookahead instead of being
+		 * scanned again. This method must not be mixed with {@link #advance()}
+		 * or {@link #next()} on the same instance.
+		 *
+		 * @return The next token, or null if the input is exhausted.
+		 * @throws IllegalStateException if the input contains an unexpected sequence
+		 */
+		public Token nextToken() {
+			Token token = peekToken(1);
+			if(token != null) {
+				firstLookahead = (firstLookahead + 1) % tables.maxLookahead;
+				--numberOfLookaheads;
+			}
+			return token;
+		}
+
+		/**
+		 * Returns the next token without moving past it.
+		 *
+		 * @return The next token, or null if the input is exhausted.
+		 * @throws IllegalStateException if the input contains an unexpected sequence
+		 * @see #peekToken(int)
+		 */
+		public Token peekToken() {
+			return peekToken(1);
+		}
+
+		/**
+		 * Returns the k-th next token without moving past any token. The tokens
+		 * up to the k-th are scanned once and kept in a ring of fixed capacity
+		 * whose slots hold only their type and offsets, so later calls reuse
+		 * them. Their characters stay in the scan buffer, so all tokens of the
+		 * lookahead together must not exceed the maximum token length.
+		 *
+		 * @param k The distance of the token, 1 for the next token.
+		 * @return The k-th next token, or null if fewer tokens remain.
+		 * @throws IllegalArgumentException if k exceeds the maximum lookahead
+		 * @throws IllegalStateException if the input contains an unexpected sequence
+		 */
+		public Token peekToken(int k) {
+			if(k < 1 || k > tables.maxLookahead) {
+				throw new IllegalArgumentException(String.format(
+						"Lookahead must be between 1 and %d, but was %d.", tables.maxLookahead, k));
+			}
+			while(numberOfLookaheads < k) {
+				if(completed()) {
+					return null;
+				}
+				advance();
+				requireToken();
+				int slot = (firstLookahead + numberOfLookaheads) % tables.maxLookahead;
+				lookaheadTypes[slot] = tokenId;
+				lookaheadStarts[slot] = startOfToken;
+				lookaheadEnds[slot] = lastAcceptedPosition + 1;
+				++numberOfLookaheads;
+			}
+			int slot = (firstLookahead + k - 1) % tables.maxLookahead;
+			int start = lookaheadStarts[slot];
+			int end = lookaheadEnds[slot];
+			return new Token(tables.tokenTypes[lookaheadTypes[slot]], lexemeOf(start, end), start, end);
 		}
-		return precedence;
 	}
 
+
 	/**
-	 * Creates a new lexer instance for tokenizing the specified input.
-	 * 
-	 * @param input The input string to tokenize.
-	 * @return A new lexer instance for this input.
+	 * Lexer instance that is fed the input instead of reading it, so it never
+	 * blocks waiting for input.
+	 *
+	 * <p>The bytes of each chunk are decoded into the scan buffer and scanned
+	 * right away. A token reaching the end of the chunk is suspended with its
+	 * automaton state and pending characters, and resumed when the next chunk
+	 * is fed. Bytes of a character split between chunks are kept until the
+	 * character is complete. Token offsets count characters, not bytes.</p>
 	 */
-	public Instance newInstance(String input) {
-		return new Instance(input);
+	public class PushInstance {
+		private static final int MAX_BYTES_PER_CHARACTER = 8;
+
+		private final Instance scanner = new Instance();
+		private final CharsetDecoder decoder;
+		private final Consumer<Token> tokens;
+		private final ByteBuffer incomplete = ByteBuffer.allocate(MAX_BYTES_PER_CHARACTER);
+		private boolean scanning = false;
+
+		private PushInstance(Charset charset, Consumer<Token> tokens) {
+			this.decoder = charset.newDecoder()
+					.onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			this.tokens = tokens;
+		}
+
+		/**
+		 * Feeds the next chunk of input and passes on all tokens completed by it.
+		 * All remaining bytes of the chunk are consumed, so the buffer may be
+		 * reused once this method returns.
+		 *
+		 * @param bytes The next chunk of input.
+		 * @throws IllegalStateException if the input ended before, if the input
+		 *                               contains an unexpected sequence, or if a
+		 *                               token exceeds the maximum token length
+		 */
+		public void feed(ByteBuffer bytes) {
+			if(scanner.inputEnded) {
+				throw new IllegalStateException("Input has already ended.");
+			}
+			while(incomplete.position() > 0 && bytes.hasRemaining()) {
+				incomplete.put(bytes.get()).flip();
+				decode(incomplete, false);
+				incomplete.compact();
+			}
+			decode(bytes, false);
+			if(bytes.hasRemaining()) {
+				// the start of a character that continues in the next chunk
+				incomplete.put(bytes);
+			}
+			emitTokens();
+		}
+
+		/**
+		 * Returns the number of error tokens passed on so far.
+		 *
+		 * @see Instance#numberOfErrors()
+		 */
+		public int numberOfErrors() {
+			return scanner.numberOfErrors();
+		}
+
+		/**
+		 * Signals that no more input follows and passes on the remaining tokens.
+		 * Further calls have no effect.
+		 *
+		 * @throws IllegalStateException if the remaining input contains an unexpected sequence
+		 */
+		public void endOfInput() {
+			if(scanner.inputEnded) {
+				return;
+			}
+			scanner.inputEnded = true;
+			incomplete.flip();
+			decode(incomplete, true);
+			CharBuffer out;
+			do {
+				scanner.makeRoom();
+				out = writableChars();
+			} while(commit(out, decoder.flush(out)).isOverflow());
+			emitTokens();
+		}
+
+		/**
+		 * Decodes bytes into the scan buffer, scanning in between whenever the
+		 * buffer is full so that its characters can be discarded.
+		 */
+		private void decode(ByteBuffer bytes, boolean endOfInput) {
+			while(true) {
+				CharBuffer out = writableChars();
+				if(!commit(out, decoder.decode(bytes, out, endOfInput)).isOverflow()) {
+					return;
+				}
+				emitTokens();
+				scanner.makeRoom();
+			}
+		}
+
+		private CharBuffer writableChars() {
+			int used = scanner.bufferEnd - scanner.bufferStart;
+			return CharBuffer.wrap(scanner.buffer, used, scanner.buffer.length - used);
+		}
+
+		private CoderResult commit(CharBuffer out, CoderResult result) {
+			scanner.bufferEnd = scanner.bufferStart + out.position();
+			return result;
+		}
+
+		/**
+		 * Scans the buffered characters and passes on every token whose end has
+		 * been found. After the end of the input, every token ends at the latest
+		 * with the last character.
+		 */
+		private void emitTokens() {
+			while(scanning || scanner.lastAcceptedPosition + 1 < scanner.bufferEnd) {
+				if(!scanning) {
+					scanner.beginToken();
+					scanning = true;
+				}
+				if(!scanner.scan() && !scanner.inputEnded) {
+					return;
+				}
+				scanner.endToken();
+				scanning = false;
+				if(!isSkipped(scanner.tokenId)) {
+					tokens.accept(scanner.getToken());
+				}
+			}
+		}
 	}
 
 
 	/**
-	 * Lexer instance that holds state while tokenizing an input string.
+	 * Lexer instance that tokenizes UTF-8 encoded bytes.
+	 *
+	 * <p>Token offsets count bytes from the position the buffer had when the
+	 * instance was created. The corresponding char offsets are only computed
+	 * if asked for, by counting the chars of the bytes passed since the last
+	 * request.</p>
 	 */
-	public class Instance {
-		private final String input;
+	public class Utf8Instance {
+		private final ByteBuffer input;
+		private final int inputStart;
+		private final int inputLength;
+		private final Utf8Automaton automaton;
 		private int lastAcceptedPosition = -1;
 		private int startOfToken = -1;
 		private int tokenId = -1;
+		private int countedBytes = 0;
+		private int countedChars = 0;
+		private boolean pending = false;
 
-		private Instance(String input) {
+		private Utf8Instance(ByteBuffer input, Utf8Automaton automaton) {
 			this.input = input;
+			this.inputStart = input.position();
+			this.inputLength = input.remaining();
+			this.automaton = automaton;
 		}
 
 		/**
-		 * Returns the most recently accepted token.
+		 * Returns the most recently accepted token, with offsets in bytes.
 		 *
 		 * @return A Token object representing the matched lexeme.
 		 * @throws IllegalStateException if no valid token was accepted
 		 */
 		public Token getToken() {
-			if(tokenId < 0 || tokenId >= tokenTypes.length) {
-				String sequence = input.substring(startOfToken, lastAcceptedPosition + 1);
-				throw new IllegalStateException(String.format("Unexpected sequence '%s'", sequence));
+			if(tokenId < 0 || tokenId >= tables.tokenTypes.length) {
+				throw new IllegalStateException(String.format("Unexpected sequence '%s'", lexeme()));
 			}
-			return new Token(
-					tokenTypes[tokenId],
-					input.substring(startOfToken, lastAcceptedPosition + 1),
-					startOfToken,
-					lastAcceptedPosition + 1
-			);
+			return new Token(tables.tokenTypes[tokenId], lexeme(), startOfToken, lastAcceptedPosition + 1);
 		}
 
+		private String lexeme() {
+			byte[] bytes = new byte[lastAcceptedPosition + 1 - startOfToken];
+			input.get(inputStart + startOfToken, bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
 
 		/**
-		 * Checks whether the lexer has finished processing all input characters.
-		 * 
-		 * @return True if no more characters remain to be processed.
+		 * Returns the char offset of the most recently accepted token, i.e. the
+		 * number of UTF-16 chars encoded before it.
 		 */
-		public boolean completed() {
-			return lastAcceptedPosition + 1 >= input.length();
+		public int getStartCharOffset() {
+			return charOffsetOf(startOfToken);
 		}
 
-
 		/**
-		 * Advances the lexer to the next token by consuming input characters
-		 * and updating the best-matching token using precedence and automata states.
+		 * Returns the char offset right after the most recently accepted token.
 		 */
-		public void advance() {
-			int position = startOfToken = lastAcceptedPosition + 1;
-			tokenId = -1;
+		public int getEndCharOffset() {
+			return charOffsetOf(lastAcceptedPosition + 1);
+		}
 
-			while(position < input.length()) {
-				int codePoint = input.charAt(position);
-				boolean anyActive = processCodePoint(codePoint, position);
-				if(!anyActive) {
-					break;
+		private int charOffsetOf(int byteOffset) {
+			if(byteOffset < countedBytes) {
+				countedBytes = 0;
+				countedChars = 0;
+			}
+			for(; countedBytes < byteOffset; ++countedBytes) {
+				int b = input.get(inputStart + countedBytes) & 0xFF;
+				if(b < 0x80 || b >= 0xC0) {
+					// lead bytes of supplementary code points encode surrogate pairs
+					countedChars += (b >= 0xF0) ? 2 : 1;
 				}
-				++position;
 			}
-
-			resetAutomata();
+			return countedChars;
 		}
 
-
 		/**
-		 * Processes a single code point across all automata, updating the match if one is found.
+		 * Checks whether the lexer has finished processing all input bytes.
+		 * Like {@link Instance#completed()}, this consumes matches of skip rules.
 		 *
-		 * @param codePoint The current character as a code point.
-		 * @param position  The current position in the input.
-		 * @return true if any automaton is still active, false otherwise
+		 * @return True if no more bytes remain to be processed.
 		 */
-		private boolean processCodePoint(int codePoint, int position) {
-			boolean anyActive = false;
-
-			for (int i = 0; i < automata.length; i++) {
-				LexicalAutomaton.Instance automaton = automata[i];
-				automaton.consume(codePoint);
-
-				if (automaton.inErrorState()) continue;
-
-				anyActive = true;
-
-				if (!automaton.acceptsInput()) continue;
-
-				if (lastAcceptedPosition == position) {
-					if (tokenId == -1 || precedence[tokenId] < precedence[i]) {
-						tokenId = i;
-					}
-				} else {
-					tokenId = i;
-					lastAcceptedPosition = position;
+		public boolean completed() {
+			while(!pending && lastAcceptedPosition + 1 < inputLength) {
+				if(tables.skipped == null) {
+					return false;
 				}
+				scanToken();
+				pending = !isSkipped(tokenId);
 			}
-
-			return anyActive;
+			return !pending;
 		}
 
-
 		/**
-		 * Resets all automata to their initial state for processing the next token.
+		 * Advances the lexer to the next token by walking the byte-level
+		 * automaton until it gets stuck. Matches of skip rules are consumed
+		 * without stopping at them.
 		 */
-		private void resetAutomata() {
-			for (LexicalAutomaton.Instance automaton : automata) {
-				automaton.reset();
+		public void advance() {
+			if(!pending) {
+				scanToken();
+				if(isSkipped(tokenId)) {
+					completed();
+				}
 			}
+			pending = false;
 		}
 
-
-		// Optional future API
-		public void nextToken() {}
-		public void peekToken() {}
+		private void scanToken() {
+			final Utf8Automaton automaton = this.automaton;
+			final ByteBuffer input = this.input;
+			final int end = inputStart + inputLength;
+			int position = inputStart + (startOfToken = lastAcceptedPosition + 1);
+			int state = automaton.initialState();
+			tokenId = -1;
+			while(position < end) {
+				state = automaton.step(state, input.get(position));
+				if(state == Utf8Automaton.ERROR_STATE) {
+					break;
+				}
+				int token = automaton.acceptedToken(state);
+				if(token != LexicalAutomaton.NO_TOKEN) {
+					tokenId = token;
+					lastAcceptedPosition = position - inputStart;
+				}
+				++position;
+			}
+			if(tables.keywords != null && tables.keywords.mayReclassify(tokenId)) {
+				String lexeme = lexeme();
+				tokenId = tables.keywords.reclassify(tokenId, lexeme, 0, lexeme.length());
+			}
+		}
 	}
 
 
@@ -166,7 +1470,7 @@ public class Lexer {
 		public final int startOffset;
 		public final int endOffset;
 		
-		private Token(String type, String lexeme, int startOffset, int endOffset) {
+		Token(String type, String lexeme, int startOffset, int endOffset) {
 			super();
 			this.type = type;
 			this.lexeme = lexeme;
@@ -176,6 +1480,161 @@ public class Lexer {
 	}
 
 
+	/**
+	 * Options that control how a lexer is compiled from its specification.
+	 */
+	public static class Options {
+		static final int DEFAULT_MAX_FUSED_STATES = 1 << 14;
+		static final int DEFAULT_MAX_TOKEN_LENGTH = 1 << 20;
+		static final int DEFAULT_MAX_LOOKAHEAD = 8;
+
+		private boolean fuseRules = true;
+		private int maxFusedStates = DEFAULT_MAX_FUSED_STATES;
+		private boolean linearTime = false;
+		private boolean skipSelfLoops = false;
+		private int maxTokenLength = DEFAULT_MAX_TOKEN_LENGTH;
+		private int maxLookahead = DEFAULT_MAX_LOOKAHEAD;
+		private int internedLexemes = 0;
+		private boolean trackLines = false;
+		private ErrorRecovery recovery = ErrorRecovery.THROW;
+
+		/**
+		 * Enables or disables fusing all rules into a single product automaton.
+		 * Without fusion, every rule automaton is stepped for every character.
+		 */
+		public Options fuseRules(boolean fuseRules) {
+			this.fuseRules = fuseRules;
+			return this;
+		}
+
+		/**
+		 * Limits the size of the product automaton. Specifications whose product
+		 * automaton grows beyond this limit fall back to per-rule scanning.
+		 */
+		public Options maxFusedStates(int maxFusedStates) {
+			if (maxFusedStates < 1) {
+				throw new IllegalArgumentException("Maximum number of fused states must be positive.");
+			}
+			this.maxFusedStates = maxFusedStates;
+			return this;
+		}
+
+		/**
+		 * Enables memoizing failed scans, which keeps the total tokenization work
+		 * linear in the input length even for rules like {@code a*b|a} that would
+		 * otherwise rescan long inputs quadratically often. This costs some time
+		 * per character and memory proportional to the rescanned input, and only
+		 * applies to fused lexers. Rules that are scanned one by one, including
+		 * rules whose fusion would exceed {@link #maxFusedStates(int)}, scan without it.
+		 */
+		public Options linearTime(boolean linearTime) {
+			this.linearTime = linearTime;
+			return this;
+		}
+
+		/**
+		 * Enables or disables skipping runs of characters on which the fused
+		 * automaton stays in the same state, e.g. inside comments, with a scan
+		 * for the next character that leaves the state. This pays off for runs
+		 * of dozens of characters, such as long comments, but makes runs of a
+		 * few characters, typical for identifiers and numbers, about a third
+		 * slower. Disabled by default.
+		 */
+		public Options skipSelfLoops(boolean skipSelfLoops) {
+			this.skipSelfLoops = skipSelfLoops;
+			return this;
+		}
+
+		/**
+		 * Limits the number of characters buffered for a single token when
+		 * reading from a stream. This bounds the memory of streaming instances;
+		 * a longer token makes the lexer fail.
+		 */
+		public Options maxTokenLength(int maxTokenLength) {
+			if (maxTokenLength < 1) {
+				throw new IllegalArgumentException("Maximum token length must be positive.");
+			}
+			this.maxTokenLength = maxTokenLength;
+			return this;
+		}
+
+		/**
+		 * Sets how many tokens {@link Instance#peekToken(int)} can look ahead.
+		 */
+		public Options maxLookahead(int maxLookahead) {
+			if (maxLookahead < 1) {
+				throw new IllegalArgumentException("Maximum lookahead must be positive.");
+			}
+			this.maxLookahead = maxLookahead;
+			return this;
+		}
+
+		/**
+		 * Interns the lexemes of the tokens returned by {@link Instance#getToken()},
+		 * {@link Instance#peekToken(int)} and push instances. Repeated lexemes,
+		 * like the names of frequently used identifiers, are then returned as the
+		 * same string instead of a fresh copy each. Every instance keeps a table
+		 * of up to the given number of lexemes, evicting rarely hit ones when it
+		 * is full. Lexemes longer than 64 characters are never interned.
+		 *
+		 * @param internedLexemes The capacity of the table, or 0 to disable interning.
+		 */
+		public Options internLexemes(int internedLexemes) {
+			if (internedLexemes < 0) {
+				throw new IllegalArgumentException("Number of interned lexemes must not be negative.");
+			}
+			this.internedLexemes = internedLexemes;
+			return this;
+		}
+
+		/**
+		 * Enables indexing the line starts of the input of {@link Instance}s,
+		 * see {@link Instance#lines()}. The characters are searched for line
+		 * ends in bulk, once before they leave the scan buffer, so the scan
+		 * itself stays as fast as without the index.
+		 */
+		public Options trackLines(boolean trackLines) {
+			this.trackLines = trackLines;
+			return this;
+		}
+
+		/**
+		 * Sets how {@link Instance}s and {@link PushInstance}s deal with
+		 * sequences that no rule matches. Unless they throw, such sequences are
+		 * reported as tokens of the additional type {@link Lexer#ERROR}, and the
+		 * lexer continues after them. Streams and publishers recover like
+		 * instances, but {@link Lexer#tokenizeParallel(CharSequence)},
+		 * {@link Lexer#tokenizeAll(List)}, {@link Lexer#relex(TokenBuffer, CharSequence, int, int, int)}
+		 * and UTF-8 instances reject a lexer that recovers.
+		 */
+		public Options recoverFromErrors(ErrorRecovery recovery) {
+			this.recovery = Objects.requireNonNull(recovery);
+			return this;
+		}
+	}
+
+
+	/**
+	 * Ways to deal with sequences that no rule matches.
+	 */
+	public enum ErrorRecovery {
+		/**
+		 * Fails with an {@link IllegalStateException}.
+		 */
+		THROW,
+		/**
+		 * Reports the first code point of the sequence as an error token.
+		 */
+		ONE_CHARACTER,
+		/**
+		 * Reports all characters up to the next one that a rule can start a token
+		 * with as one error token. A push instance may split such a token where
+		 * a chunk ends.
+		 */
+		UP_TO_NEXT_START
+	}
+
+
 	/**
 	 * Creates a Lexer from a LexerSpecification.
 	 * 
@@ -183,20 +1642,164 @@ public class Lexer {
 	 * @return A Lexer instance ready to tokenize input.
 	 */
 	public static Lexer from(final LexerSpecification definition) {
-		LexicalAutomaton.Instance[] automata = new LexicalAutomaton.Instance[definition.getRules().size()];
-		String[] tokenTypes = new String[automata.length];
-		int i = 0;
-		for(LexerSpecification.LexerRule rule : definition.getRules()) {
-			automata[i] = automatonFrom(rule.automaton);
+		return from(definition, new Options());
+	}
+
+
+	/**
+	 * Creates a Lexer from a LexerSpecification.
+	 * 
+	 * @param definition The lexer specification containing rules.
+	 * @param options    The options controlling how the rules are compiled.
+	 * @return A Lexer instance ready to tokenize input.
+	 */
+	public static Lexer from(final LexerSpecification definition, final Options options) {
+		List<LexerSpecification.LexerRule> rules = new ArrayList<>(definition.getRules());
+		Alphabet alphabet = Alphabet.of(rules.stream().map(rule -> rule.automaton).toList());
+		LexicalAutomaton[] automata = new LexicalAutomaton[rules.size()];
+		KeywordTable keywordTable = definition.getKeywords();
+		String[] tokenTypes = typesOf(rules, keywordTable, options.recovery != ErrorRecovery.THROW);
+		boolean[] skipped = new boolean[tokenTypes.length];
+		String[][] captureGroups = new String[tokenTypes.length][0];
+		int firstSlot = 0;
+		for(int i = 0; i < automata.length; ++i) {
+			LexerSpecification.LexerRule rule = rules.get(i);
+			automata[i] = new Builder(rule.automaton, i, alphabet, firstSlot).build();
 			tokenTypes[i] = rule.tokenType;
-			++i;
+			skipped[i] = rule.skip;
+			captureGroups[i] = rule.automaton.getCaptureGroups().toArray(new String[0]);
+			firstSlot += captureGroups[i].length;
+		}
+		int[] precedence = latestWins(automata.length);
+
+		LexicalAutomaton fused = null;
+		if(options.fuseRules) {
+			fused = RuleFusion.fuse(automata, precedence, alphabet, options.maxFusedStates).orElse(null);
+		}
+
+		boolean anySkipped = IntStream.range(0, skipped.length).anyMatch(i -> skipped[i]);
+		Keywords keywords = (keywordTable == null) ? null : Keywords.of(keywordTable, List.of(tokenTypes));
+		return new Lexer(new Tables(automata, fused, alphabet, rulesStartingWith(automata, alphabet), precedence, tokenTypes,
+				anySkipped ? skipped : null, captureGroups, keywords, options), null);
+	}
+
+
+	/**
+	 * Lists the token type of each rule, followed by the types of those
+	 * keywords that no rule has and, if errors are recovered from, the type
+	 * of error tokens.
+	 */
+	private static String[] typesOf(List<LexerSpecification.LexerRule> rules, KeywordTable keywords, boolean withErrors) {
+		List<String> tokenTypes = new ArrayList<>();
+		rules.forEach(rule -> tokenTypes.add(rule.tokenType));
+		for(int slot = 0; keywords != null && slot < keywords.size(); ++slot) {
+			if(!tokenTypes.contains(keywords.typeAt(slot))) {
+				tokenTypes.add(keywords.typeAt(slot));
+			}
+		}
+		if(withErrors) {
+			tokenTypes.add(ERROR);
+		}
+		return tokenTypes.toArray(new String[0]);
+	}
+
+
+	/**
+	 * Determines for each symbol class which rules can start a token with it.
+	 *
+	 * @return the ids of all rules that do not fail on the first symbol, indexed by symbol class
+	 */
+	private static int[][] rulesStartingWith(LexicalAutomaton[] automata, Alphabet alphabet) {
+		int[][] startingRules = new int[alphabet.numberOfClasses()][];
+		startingRules[Alphabet.INVALID_SYMBOL] = new int[0];
+		for(int symbol = 1; symbol < startingRules.length; ++symbol) {
+			final int firstSymbol = symbol;
+			startingRules[symbol] = IntStream.range(0, automata.length)
+					.filter(i -> automata[i].step(automata[i].initialState(), firstSymbol) != LexicalAutomaton.ERROR_STATE)
+					.toArray();
 		}
-		return new Lexer(automata, tokenTypes);
+		return startingRules;
 	}
 
 
-	private static LexicalAutomaton.Instance automatonFrom(final DfaModel dfaModel){
-		return new Builder(dfaModel).build();
+	/**
+	 * The compiled, immutable state of a lexer, which lexers derived with
+	 * {@link Lexer#withAction(String, TokenAction)} share, together with the
+	 * tables that are only built on first use.
+	 */
+	private static final class Tables {
+		final LexicalAutomaton[] rules;
+		final LexicalAutomaton fused;
+		final SelfLoops selfLoops;
+		final Alphabet alphabet;
+		final int[][] startingRules;
+		final int[] precedence;
+		final String[] tokenTypes;
+		final boolean[] skipped;
+		final String[][] captureGroups;
+		final Keywords keywords;
+		final int[] firstSlots;
+		final int[] typeOfSlot;
+		final boolean linearTime;
+		final int maxTokenLength;
+		final int maxLookahead;
+		final int internedLexemes;
+		final boolean trackLines;
+		final ErrorRecovery recovery;
+		final int errorType;
+		private Utf8Automaton utf8;
+		private ParallelTokenizer parallel;
+
+		Tables(LexicalAutomaton[] rules, LexicalAutomaton fused, Alphabet alphabet, int[][] startingRules, int[] precedence,
+				String[] tokenTypes, boolean[] skipped, String[][] captureGroups, Keywords keywords, Options options) {
+			this.rules = rules;
+			this.fused = fused;
+			this.selfLoops = (fused != null && options.skipSelfLoops) ? SelfLoops.of(fused, alphabet) : null;
+			this.alphabet = alphabet;
+			this.startingRules = startingRules;
+			this.tokenTypes = tokenTypes;
+			this.precedence = precedence;
+			this.skipped = skipped;
+			this.captureGroups = captureGroups;
+			this.keywords = keywords;
+			this.firstSlots = new int[tokenTypes.length];
+			this.typeOfSlot = new int[Arrays.stream(captureGroups).mapToInt(groups -> groups.length).sum()];
+			for(int type = 0, slot = 0; type < tokenTypes.length; ++type) {
+				firstSlots[type] = slot;
+				for(int group = 0; group < captureGroups[type].length; ++group) {
+					typeOfSlot[slot++] = type;
+				}
+			}
+			this.linearTime = options.linearTime;
+			this.maxTokenLength = options.maxTokenLength;
+			this.maxLookahead = options.maxLookahead;
+			this.internedLexemes = options.internedLexemes;
+			this.trackLines = options.trackLines;
+			this.recovery = options.recovery;
+			this.errorType = (recovery == ErrorRecovery.THROW) ? LexicalAutomaton.NO_TOKEN : tokenTypes.length - 1;
+		}
+
+		/**
+		 * Returns the byte-level automaton, building it on first use. The
+		 * rules have to be fused.
+		 */
+		synchronized Utf8Automaton utf8Automaton() {
+			if(utf8 == null) {
+				utf8 = Utf8Automaton.of(fused, alphabet);
+			}
+			return utf8;
+		}
+
+		/**
+		 * Returns the parallel tokenizer, building it on first use. The rules
+		 * have to be fused.
+		 */
+		synchronized ParallelTokenizer parallelTokenizer() {
+			if(parallel == null) {
+				parallel = new ParallelTokenizer(fused, alphabet, List.of(tokenTypes), skipped, keywords);
+			}
+			return parallel;
+		}
 	}
 
 
@@ -204,47 +1807,55 @@ public class Lexer {
 	 * Builds a LexicalAutomaton from a DFA model.
 	 */
 	private static class Builder {
-		private static final int INVALID_SYMBOL = 0;
-
 		private final DfaModel model;
+		private final int tokenId;
+		private final Alphabet alphabet;
 		private final Map<String, Integer> stateMap = new HashMap<>();
-		private final Map<String, Integer> symbolMap = new HashMap<>();
-		private final SymbolStrategy symbols;
+		private final Map<String, int[]> symbolMap = new HashMap<>();
 		private final int initialState;
 		private final int errorState;
 		private final boolean[] acceptingStates;
 		private final int[][] transitions;
+		private final int firstSlot;
+		private int[][][] operations;
 
 		private int nextStateId = 0;
 
-		Builder(DfaModel model) {
+		/**
+		 * @param firstSlot the capture slot of the first capture group of the model
+		 */
+		Builder(DfaModel model, int tokenId, Alphabet alphabet, int firstSlot) {
 			this.model = model;
+			this.tokenId = tokenId;
+			this.alphabet = alphabet;
+			this.firstSlot = firstSlot;
 
 			for(String state : model.getStates()) {
 				stateMap.put(state, nextStateId++);
 			}
 
-			this.symbols = defineSymbols();
+			defineSymbols();
 			this.initialState = stateMap.get(model.getInitialState());
 			this.errorState = determineErrorState();
 			this.acceptingStates = markAcceptingStates();
 			this.transitions = new int[nextStateId][];
 			defineTransitions();
+			defineTags();
+			redirectDeadStates();
 		}
 
-		LexicalAutomaton.Instance build() {
-			LexicalAutomaton automaton = new LexicalAutomaton(initialState, acceptingStates, transitions, errorState, symbols);
-			return automaton.newInstance();
+		LexicalAutomaton build() {
+			int[] acceptedTokens = new int[transitions.length];
+			for(int state = 0; state < acceptedTokens.length; ++state) {
+				acceptedTokens[state] = acceptingStates[state] ? tokenId : LexicalAutomaton.NO_TOKEN;
+			}
+			return new LexicalAutomaton(initialState, acceptedTokens, transitions, operations, errorState, alphabet.symbols());
 		}
 
-		private SymbolStrategy defineSymbols() {
-			Map<Integer, CodePointRange> symbIdToRange = new HashMap<>();
-			int groupId = 1; // 0 is reserved as ID_OF_INVALID_SYMBOL
+		private void defineSymbols() {
 			for(Map.Entry<String, CodePointRange> symbol : model.getSymbols().entrySet()) {
-				symbolMap.put(symbol.getKey(), groupId);
-				symbIdToRange.put(groupId++, symbol.getValue());
+				symbolMap.put(symbol.getKey(), alphabet.classesWithin(symbol.getValue()));
 			}
-			return SymbolStrategy.basedOn(symbIdToRange);
 		}
 
 		private int determineErrorState() {
@@ -258,7 +1869,7 @@ public class Lexer {
 		}
 
 		private boolean[] markAcceptingStates() {
-			boolean[] accepting = new boolean[stateMap.size()];
+			boolean[] accepting = new boolean[nextStateId];
 			for (String state : model.getAcceptingStates()) {
 				accepting[stateMap.get(state)] = true;
 			}
@@ -266,16 +1877,97 @@ public class Lexer {
 		}
 
 		private void defineTransitions() {
+			for(int state = 0; state < transitions.length; ++state) {
+				transitions[state] = new int[alphabet.numberOfClasses()];
+				Arrays.fill(transitions[state], errorState);
+			}
 			for(Map.Entry<String, Map<String, String>> modelTransitions : model.getTransitions().entrySet()) {
 				int origin = stateMap.get(modelTransitions.getKey());
-				int[] transition = new int[symbols.numberOfGroups()];
+				int[] transition = transitions[origin];
 				for(Map.Entry<String, String> stateTransition : modelTransitions.getValue().entrySet()) {
-					int symbolId = symbolMap.get(stateTransition.getKey());
 					int target = stateMap.get(stateTransition.getValue());
-					transition[symbolId] = target;
+					for(int symbolId : symbolMap.get(stateTransition.getKey())) {
+						transition[symbolId] = target;
+					}
+				}
+				transition[Alphabet.INVALID_SYMBOL] = errorState;
+			}
+		}
+
+		/**
+		 * Translates the capture tags of the model into tag operations on
+		 * the capture slots, see {@link Captures}.
+		 */
+		private void defineTags() {
+			List<String> groups = new ArrayList<>(model.getCaptureGroups());
+			if(groups.isEmpty()) {
+				return;
+			}
+			operations = new int[transitions.length][][];
+			defineTags(model.getCaptureStarts(), groups, Captures::startOf);
+			defineTags(model.getCaptureEnds(), groups, Captures::endOf);
+		}
+
+		private void defineTags(Map<String, Map<String, Set<String>>> tags, List<String> groups, IntUnaryOperator operation) {
+			for(Map.Entry<String, Map<String, Set<String>>> stateTags : tags.entrySet()) {
+				int origin = stateMap.get(stateTags.getKey());
+				if(operations[origin] == null) {
+					operations[origin] = new int[alphabet.numberOfClasses()][];
+				}
+				for(Map.Entry<String, Set<String>> transitionTags : stateTags.getValue().entrySet()) {
+					for(String group : transitionTags.getValue()) {
+						int tag = operation.applyAsInt(firstSlot + groups.indexOf(group));
+						for(int symbolId : symbolMap.get(transitionTags.getKey())) {
+							int[] previous = operations[origin][symbolId];
+							int[] extended = (previous == null) ? new int[1] : Arrays.copyOf(previous, previous.length + 1);
+							extended[extended.length - 1] = tag;
+							operations[origin][symbolId] = extended;
+						}
+					}
+				}
+			}
+		}
+
+		/**
+		 * Redirects all transitions into states from which no accepting state
+		 * can be reached to the error state, so the automaton stops as soon as
+		 * no token can be matched anymore.
+		 */
+		private void redirectDeadStates() {
+			boolean[] alive = new boolean[transitions.length];
+			Deque<Integer> pending = new ArrayDeque<>();
+			for(int state = 0; state < alive.length; ++state) {
+				if(acceptingStates[state]) {
+					alive[state] = true;
+					pending.push(state);
+				}
+			}
+			while(!pending.isEmpty()) {
+				int target = pending.pop();
+				for(int origin = 0; origin < transitions.length; ++origin) {
+					if(alive[origin]) {
+						continue;
+					}
+					for(int next : transitions[origin]) {
+						if(next == target) {
+							alive[origin] = true;
+							pending.push(origin);
+							break;
+						}
+					}
+				}
+			}
+			for(int origin = 0; origin < transitions.length; ++origin) {
+				int[] transition = transitions[origin];
+				for(int symbol = 0; symbol < transition.length; ++symbol) {
+					if(!alive[transition[symbol]]) {
+						transition[symbol] = errorState;
+						if(operations != null && operations[origin] != null) {
+							// tags of transitions that cannot lead to a match never take effect
+							operations[origin][symbol] = null;
+						}
+					}
 				}
-				transition[INVALID_SYMBOL] = errorState;
-				transitions[origin] = transition;
 			}
 		}
 	}
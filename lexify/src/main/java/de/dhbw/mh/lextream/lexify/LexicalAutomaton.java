@@ -1,59 +1,155 @@
 package de.dhbw.mh.lextream.lexify;
 
+/**
+ * A compiled deterministic automaton that recognizes tokens.
+ *
+ * <p>The transitions are stored in a single row-major table. A state is
+ * encoded as the offset of its row, so the successor of {@code state} on
+ * symbol group {@code symbol} is simply {@code table[state + symbol]}. The
+ * rows are ordered such that the error state comes first and all accepting
+ * states come last:</p>
+ * <ul>
+ *   <li>the error state is encoded as {@link #ERROR_STATE} and loops back to itself
+ *       on every symbol, so missing transitions need no special treatment,</li>
+ *   <li>a state is accepting if its encoding is at least {@code firstAcceptingState},</li>
+ *   <li>the last column of each row holds the token accepted in that state.</li>
+ * </ul>
+ * <p>Transitions may carry tag operations, which record the position of the
+ * character read in a capture slot. They are kept apart from the table and
+ * are only consulted by scans that report captures.</p>
+ */
 public class LexicalAutomaton {
 
-	private final int initialState;
-	private final int errorState;
-	private final boolean[] acceptingStates;
-	private final SymbolStrategy symbols;
-	private final int[][] transitions;
+	static final int ERROR_STATE = 0;
+	static final int NO_TOKEN = -1;
 
-	public LexicalAutomaton(int initialState, boolean[] acceptingStates, int[][] transitions, int errorState, SymbolStrategy symbols) {
-		this.initialState = initialState;
-		this.acceptingStates = acceptingStates;
-		this.transitions = transitions;
-		this.errorState = errorState;
-		this.symbols = symbols;
-	}
+	private final int[] table;
+	private final int stride;
+	private final int tokenColumn;
+	private final int initialState;
+	private final int firstAcceptingState;
+	private final int[][] tags;
 
-	public Instance newInstance() {
-		return new Instance();
+	/**
+	 * Compiles an automaton whose accepting states report a token id.
+	 *
+	 * @param initialState   the id of the initial state
+	 * @param acceptedTokens the token id accepted in each state, or {@link #NO_TOKEN}
+	 * @param transitions    the transition table indexed by state and symbol group
+	 * @param errorState     the id of the (sink) error state
+	 * @param symbols        the strategy that maps code points onto symbol groups
+	 */
+	public LexicalAutomaton(int initialState, int[] acceptedTokens, int[][] transitions, int errorState, SymbolStrategy symbols) {
+		this(initialState, acceptedTokens, transitions, null, errorState, symbols);
 	}
 
-
 	/**
-	 * A runtime instance of the automaton which can consume input and track state.
+	 * Compiles an automaton whose transitions carry tag operations.
+	 *
+	 * @param operations the tag operations of each transition, indexed by state
+	 *                   and symbol group, each null if there are none; or null
+	 *                   if the automaton has no tags at all
+	 * @see Captures
 	 */
-	public class Instance {
-		private int state;
-
-		private Instance() {
-			state = initialState;
-		}
+	LexicalAutomaton(int initialState, int[] acceptedTokens, int[][] transitions, int[][][] operations, int errorState, SymbolStrategy symbols) {
+		this.tokenColumn = symbols.numberOfGroups();
+		this.stride = tokenColumn + 1;
 
-		public void reset() {
-			state = initialState;
+		int[] rowOf = new int[transitions.length];
+		int nextRow = 0;
+		rowOf[errorState] = nextRow++;
+		for(int state = 0; state < transitions.length; ++state) {
+			if(state != errorState && acceptedTokens[state] == NO_TOKEN) {
+				rowOf[state] = nextRow++;
+			}
 		}
-
-		public boolean inErrorState() {
-			return state == errorState;
+		int firstAcceptingRow = nextRow;
+		for(int state = 0; state < transitions.length; ++state) {
+			if(state != errorState && acceptedTokens[state] != NO_TOKEN) {
+				rowOf[state] = nextRow++;
+			}
 		}
 
-		public boolean acceptsInput() {
-			return acceptingStates[state];
+		this.table = new int[transitions.length * stride];
+		for(int state = 0; state < transitions.length; ++state) {
+			int row = rowOf[state] * stride;
+			if(state == errorState) {
+				table[row + tokenColumn] = NO_TOKEN;
+				continue;
+			}
+			for(int symbol = 0; symbol < tokenColumn; ++symbol) {
+				table[row + symbol] = rowOf[transitions[state][symbol]] * stride;
+			}
+			table[row + tokenColumn] = acceptedTokens[state];
 		}
+		this.initialState = rowOf[initialState] * stride;
+		this.firstAcceptingState = firstAcceptingRow * stride;
 
-		public void consume(int codePoint) {
-			if(inErrorState()) {
-				return;
-			}
-			try {
-				int symbolId = symbols.containing(codePoint);
-				state = transitions[state][symbolId];
-			}catch(ArrayIndexOutOfBoundsException ex) {
-				state = errorState;
+		this.tags = (operations == null) ? null : new int[table.length][];
+		if(operations != null) {
+			for(int state = 0; state < transitions.length; ++state) {
+				for(int symbol = 0; symbol < tokenColumn && operations[state] != null; ++symbol) {
+					tags[rowOf[state] * stride + symbol] = operations[state][symbol];
+				}
 			}
 		}
 	}
 
+	int initialState() {
+		return initialState;
+	}
+
+	int numberOfStates() {
+		return table.length / stride;
+	}
+
+	/**
+	 * Returns the encoded state in row {@code index}, for
+	 * {@code 0 <= index < numberOfStates()}.
+	 */
+	int stateAt(int index) {
+		return index * stride;
+	}
+
+	/**
+	 * Returns the row of an encoded state, the inverse of {@link #stateAt(int)}.
+	 */
+	int indexOf(int state) {
+		return state / stride;
+	}
+
+	boolean accepts(int state) {
+		return state >= firstAcceptingState;
+	}
+
+	int acceptedToken(int state) {
+		return table[state + tokenColumn];
+	}
+
+	boolean isTagged() {
+		return tags != null;
+	}
+
+	/**
+	 * Returns the tag operations of a transition of a tagged automaton.
+	 *
+	 * @param state  the encoded origin state
+	 * @param symbol the symbol group of the code point read
+	 * @return the operations, or null if the transition carries none
+	 */
+	int[] tagsOf(int state, int symbol) {
+		return tags[state + symbol];
+	}
+
+	/**
+	 * Performs a single transition on an already classified code point.
+	 *
+	 * @param state  the encoded origin state
+	 * @param symbol the symbol group of the code point read
+	 * @return the encoded target state, {@link #ERROR_STATE} if there is none
+	 */
+	int step(int state, int symbol) {
+		return table[state + symbol];
+	}
+
 }
@@ -0,0 +1,86 @@
+package de.dhbw.mh.lextream.lexify;
+
+import java.util.Arrays;
+
+/**
+ * The offsets at which the lines of an input start. Tokens only carry
+ * offsets; their line and column numbers are resolved from the index on
+ * demand, by a binary search over the line starts.
+ *
+ * <p>A line ends with {@code '\n'}, so {@code "\r\n"} ends a line as well.
+ * Lines and columns are counted from 1, columns in chars.</p>
+ *
+ * @see Lexer.Instance#lines()
+ */
+public final class LineIndex {
+
+	private int[] lineStarts = new int[64];
+	private int numberOfLines = 1;
+
+	LineIndex() {
+		// the first line starts at offset 0
+	}
+
+	/**
+	 * Indexes the lines of a complete text.
+	 */
+	public static LineIndex of(CharSequence text) {
+		LineIndex index = new LineIndex();
+		for(int offset = 0; offset < text.length(); ++offset) {
+			if(text.charAt(offset) == '\n') {
+				index.addLineStart(offset + 1);
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Adds the start of the next line, which must follow all line starts added before.
+	 */
+	void addLineStart(int offset) {
+		if(numberOfLines == lineStarts.length) {
+			lineStarts = Arrays.copyOf(lineStarts, 2 * lineStarts.length);
+		}
+		lineStarts[numberOfLines++] = offset;
+	}
+
+	/**
+	 * Returns the number of lines indexed so far.
+	 */
+	public int numberOfLines() {
+		return numberOfLines;
+	}
+
+	/**
+	 * Returns the line of the character at the given offset.
+	 *
+	 * @throws IllegalArgumentException if the offset is negative
+	 */
+	public int lineOf(int offset) {
+		if(offset < 0) {
+			throw new IllegalArgumentException(String.format("Offset must not be negative, but was %d.", offset));
+		}
+		int found = Arrays.binarySearch(lineStarts, 0, numberOfLines, offset);
+		return (found >= 0) ? found + 1 : -found - 1;
+	}
+
+	/**
+	 * Returns the column of the character at the given offset.
+	 *
+	 * @throws IllegalArgumentException if the offset is negative
+	 */
+	public int columnOf(int offset) {
+		return offset - lineStarts[lineOf(offset) - 1] + 1;
+	}
+
+	/**
+	 * Formats the position of the given offset as {@code line:column}.
+	 *
+	 * @throws IllegalArgumentException if the offset is negative
+	 */
+	public String positionOf(int offset) {
+		int line = lineOf(offset);
+		return line + ":" + (offset - lineStarts[line - 1] + 1);
+	}
+
+}
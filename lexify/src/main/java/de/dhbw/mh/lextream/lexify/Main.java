@@ -2,6 +2,9 @@ package de.dhbw.mh.lextream.lexify;
 
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -55,8 +58,14 @@ public final class Main {
 		Options options = new Options();
 		Option verbose = new Option("v", "verbose", false, "Enable verbose output");
 		Option help = new Option("h", "help", false, "Print this help text");
+		Option parallel = new Option("p", "parallel", false, "Read the whole input, then tokenize chunks of it in parallel");
+		Option lines = new Option("l", "lines", false, "Print the positions of tokens as line:column instead of offsets");
+		Option recover = new Option("r", "recover", false, "Report unexpected sequences as ERROR tokens and continue (not with --parallel)");
 		options.addOption(verbose);
 		options.addOption(help);
+		options.addOption(parallel);
+		options.addOption(lines);
+		options.addOption(recover);
 
 		CommandLine cli = parseArguments(args, options);
 		String[] positionalArgs = cli.getArgs();
@@ -71,19 +80,36 @@ public final class Main {
 			printHelp(options);
 			System.exit(ExitCode.ERROR_INVALID_ARGS);
 		}
+		if (cli.hasOption(parallel) && cli.hasOption(recover)) {
+			System.err.println("Error: Recovering from unexpected sequences is not supported with --parallel.");
+			printHelp(options);
+			System.exit(ExitCode.ERROR_INVALID_ARGS);
+		}
 
 		Path lexerSpecPath = resolveSingleFile(positionalArgs[0], "lexer specification");
 		LexerSpecification lexerSpec = parseLexerSpecification(lexerSpecPath);
 
-		String input = (positionalArgs.length < 2)
-				? readFromStdin()
-				: readFile(resolveSingleFile(positionalArgs[1], "input"), "input");
+		Path inputPath = (positionalArgs.length < 2)
+				? null
+				: resolveSingleFile(positionalArgs[1], "input");
 
 		if (isVerbose) {
-			System.out.printf("received '%s'%n", input);
+			System.out.printf("reading from %s%n", (inputPath == null) ? "standard input" : "'" + inputPath + "'");
 		}
 
-		runLexer(lexerSpec, input);
+		try (Reader input = openInput(inputPath)) {
+			if (cli.hasOption(parallel)) {
+				StringWriter content = new StringWriter();
+				input.transferTo(content);
+				runParallelLexer(lexerSpec, content.toString(), cli.hasOption(lines));
+			} else {
+				runLexer(lexerSpec, input, cli.hasOption(lines), cli.hasOption(recover));
+			}
+		} catch (IOException | UncheckedIOException e) {
+			System.err.println("Error reading input:");
+			e.printStackTrace();
+			System.exit(ExitCode.ERROR_IO);
+		}
 	}
 
 
@@ -141,20 +167,15 @@ public final class Main {
 	}
 
 
-	private static String readFromStdin() {
-		try (InputStreamReader reader = new InputStreamReader(System.in, StandardCharsets.UTF_8)) {
-			StringBuilder builder = new StringBuilder();
-			int ch;
-			while ((ch = reader.read()) != -1) {
-				builder.append((char) ch);
-			}
-			return builder.toString();
-		} catch (IOException e) {
-			System.err.println("Error reading from standard input:");
-			e.printStackTrace();
-			System.exit(ExitCode.ERROR_IO);
-			return ""; // unreachable
+	/**
+	 * Opens the input file, or standard input if no file is given. The input is
+	 * read while tokenizing, so it is never held in memory as a whole.
+	 */
+	private static Reader openInput(Path file) throws IOException {
+		if (file == null) {
+			return new InputStreamReader(System.in, StandardCharsets.UTF_8);
 		}
+		return Files.newBufferedReader(file, StandardCharsets.UTF_8);
 	}
 
 
@@ -185,17 +206,53 @@ public final class Main {
 
 	/**
 	 * Applies the lexer specification to the input and prints tokens to stdout.
+	 * With {@code withLines}, positions are printed as line:column, the end
+	 * being the position right after the token. With {@code recover}, the
+	 * number of error tokens is printed to stderr at the end.
 	 */
-	private static void runLexer(LexerSpecification spec, String input) {
-		Lexer lexer = Lexer.from(spec);
+	private static void runLexer(LexerSpecification spec, Reader input, boolean withLines, boolean recover) {
+		Lexer.Options options = new Lexer.Options().trackLines(withLines);
+		if (recover) {
+			options.recoverFromErrors(Lexer.ErrorRecovery.UP_TO_NEXT_START);
+		}
+		Lexer lexer = Lexer.from(spec, options);
 		Lexer.Instance instance = lexer.newInstance(input);
 
 		while (!instance.completed()) {
 			instance.advance();
 			Lexer.Token token = instance.getToken();
-			System.out.printf("%s('%s', %d-%d)%n", token.type, token.lexeme, token.startOffset, token.endOffset);
+			if (withLines) {
+				LineIndex lines = instance.lines();
+				System.out.printf("%s('%s', %s-%s)%n", token.type, token.lexeme,
+						lines.positionOf(token.startOffset), lines.positionOf(token.endOffset));
+			} else {
+				System.out.printf("%s('%s', %d-%d)%n", token.type, token.lexeme, token.startOffset, token.endOffset);
+			}
 			System.out.flush();
 		}
+		if (recover) {
+			System.err.printf("%d errors%n", instance.numberOfErrors());
+		}
+	}
+
+
+	/**
+	 * Applies the lexer specification to chunks of the input in parallel and
+	 * prints the tokens to stdout, in the same format as {@link #runLexer}.
+	 */
+	private static void runParallelLexer(LexerSpecification spec, String input, boolean withLines) {
+		TokenBuffer tokens = Lexer.from(spec).tokenizeParallel(input);
+		LineIndex lines = withLines ? LineIndex.of(input) : null;
+
+		for (int i = 0; i < tokens.size(); i++) {
+			String lexeme = input.substring(tokens.start(i), tokens.end(i));
+			if (withLines) {
+				System.out.printf("%s('%s', %s-%s)%n", tokens.type(i), lexeme, lines.positionOf(tokens.start(i)), lines.positionOf(tokens.end(i)));
+			} else {
+				System.out.printf("%s('%s', %d-%d)%n", tokens.type(i), lexeme, tokens.start(i), tokens.end(i));
+			}
+		}
+		System.out.flush();
 	}
 
 }
@@ -0,0 +1,154 @@
+package de.dhbw.mh.lextream.lexify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.dhbw.mh.redeggs.CodePointRange;
+
+/**
+ * A symbol strategy that maps code points to groups using a two-level lookup
+ * table, like the tables used for Unicode character properties.
+ *
+ * <p>The code space is split into pages of 256 code points. A page index maps
+ * the upper bits of a code point onto the offset of its page in one shared
+ * block array, and the lower 8 bits select the entry within that page. Pages
+ * with identical contents, such as the many pages no symbol touches, are
+ * stored only once. Page 0 always starts at offset 0, so Latin-1 code points
+ * are looked up directly.</p>
+ */
+class PagedSymbolStrategy extends SymbolStrategy {
+
+	private static final int PAGE_BITS = 8;
+	private static final int PAGE_SIZE = 1 << PAGE_BITS;
+	private static final int PAGE_MASK = PAGE_SIZE - 1;
+	private static final int NUMBER_OF_PAGES = (Character.MAX_CODE_POINT + 1) >>> PAGE_BITS;
+
+	private final int[] pageOffsets;
+	private final int[] blocks;
+	private final int numberOfGroups;
+
+	PagedSymbolStrategy(Map<Integer, CodePointRange> symbolMap) {
+		numberOfGroups = symbolMap.size() + 1; // Group 0 is reserved for "invalid"
+		int[][] pages = new int[NUMBER_OF_PAGES][];
+		Set<int[]> sharedPages = Collections.newSetFromMap(new IdentityHashMap<>());
+		Map<Integer, int[]> uniformPages = new HashMap<>();
+		for(Map.Entry<Integer, CodePointRange> entry : symbolMap.entrySet()) {
+			int groupId = entry.getKey();
+			CodePointRange range = entry.getValue();
+			for(int page = range.firstCodePoint >>> PAGE_BITS; page <= range.lastCodePoint >>> PAGE_BITS; ++page) {
+				int pageStart = page << PAGE_BITS;
+				int first = Math.max(range.firstCodePoint, pageStart) - pageStart;
+				int last = Math.min(range.lastCodePoint, pageStart + PAGE_MASK) - pageStart;
+				if(first == 0 && last == PAGE_MASK && pages[page] == null) {
+					pages[page] = uniformPages.computeIfAbsent(groupId, id -> uniformPage(id, sharedPages));
+					continue;
+				}
+				if(pages[page] == null) {
+					pages[page] = new int[PAGE_SIZE];
+				} else if(sharedPages.contains(pages[page])) {
+					pages[page] = pages[page].clone();
+				}
+				Arrays.fill(pages[page], first, last + 1, groupId);
+			}
+		}
+
+		pageOffsets = new int[NUMBER_OF_PAGES];
+		blocks = deduplicate(pages, pageOffsets);
+	}
+
+	private static int[] uniformPage(int groupId, Set<int[]> sharedPages) {
+		int[] page = new int[PAGE_SIZE];
+		Arrays.fill(page, groupId);
+		sharedPages.add(page);
+		return page;
+	}
+
+	/**
+	 * Stores each distinct page once, page 0 first.
+	 *
+	 * @param pages       the contents of each page, {@code null} for pages without symbols
+	 * @param pageOffsets receives the offset of each page within the returned blocks
+	 * @return the concatenated distinct pages
+	 */
+	private static int[] deduplicate(int[][] pages, int[] pageOffsets) {
+		int[] emptyPage = new int[PAGE_SIZE];
+		Map<Page, Integer> offsets = new HashMap<>();
+		Map<int[], Integer> knownPages = new IdentityHashMap<>();
+		List<int[]> distinctPages = new ArrayList<>();
+		for(int page = 0; page < pages.length; ++page) {
+			int[] content = (pages[page] == null) ? emptyPage : pages[page];
+			Integer offset = knownPages.get(content);
+			if(offset == null) {
+				Page key = new Page(content);
+				offset = offsets.get(key);
+				if(offset == null) {
+					offset = distinctPages.size() * PAGE_SIZE;
+					offsets.put(key, offset);
+					distinctPages.add(content);
+				}
+				knownPages.put(content, offset);
+			}
+			pageOffsets[page] = offset;
+		}
+		int[] blocks = new int[distinctPages.size() * PAGE_SIZE];
+		for(int i = 0; i < distinctPages.size(); ++i) {
+			System.arraycopy(distinctPages.get(i), 0, blocks, i * PAGE_SIZE, PAGE_SIZE);
+		}
+		return blocks;
+	}
+
+	@Override
+	int containing(int codePoint) {
+		if(codePoint < PAGE_SIZE) {
+			return (codePoint >= 0) ? blocks[codePoint] : 0;
+		}
+		if(codePoint > Character.MAX_CODE_POINT) {
+			return 0;
+		}
+		return blocks[pageOffsets[codePoint >>> PAGE_BITS] + (codePoint & PAGE_MASK)];
+	}
+
+	@Override
+	int numberOfGroups() {
+		return numberOfGroups;
+	}
+
+	int numberOfDistinctPages() {
+		return blocks.length / PAGE_SIZE;
+	}
+
+
+	/**
+	 * The contents of a page, compared by value.
+	 */
+	private static final class Page {
+		private final int[] content;
+		private final int hash;
+
+		Page(int[] content) {
+			this.content = content;
+			this.hash = Arrays.hashCode(content);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o)
+				return true;
+			if (o == null || getClass() != o.getClass())
+				return false;
+			return Arrays.equals(content, ((Page) o).content);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+}
@@ -0,0 +1,223 @@
+package de.dhbw.mh.lextream.lexify;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Tokenizes a large input by scanning chunks of it in parallel.
+ *
+ * <p>Only the first chunk starts at a known token boundary. Every other chunk
+ * is scanned speculatively from a guessed start, which is placed right after
+ * a synchronizing symbol if one occurs near the chunk boundary. A symbol is
+ * synchronizing if no token can continue after it, so a token always ends
+ * right after it. The chunks are then stitched together in order: as soon as
+ * the true token stream reaches the start of a speculative token, both
+ * streams agree from there on, because scanning from the same position
+ * always yields the same tokens. Only tokens before that point are scanned
+ * once more.</p>
+ */
+class ParallelTokenizer {
+
+	private static final int MIN_CHUNK_LENGTH = 1 << 16;
+	private static final int CHUNKS_PER_THREAD = 4;
+	private static final int MAX_SYNC_DISTANCE = 1 << 12;
+
+	private final LexicalAutomaton automaton;
+	private final Alphabet alphabet;
+	private final List<String> tokenTypes;
+	private final boolean[] skipped;
+	private final Keywords keywords;
+	private final boolean[] synchronizing;
+
+	/**
+	 * @param skipped  whether each token type is discarded, or null if none is
+	 * @param keywords the keywords to look up, or null if there are none
+	 */
+	ParallelTokenizer(LexicalAutomaton automaton, Alphabet alphabet, List<String> tokenTypes, boolean[] skipped,
+			Keywords keywords) {
+		this.automaton = automaton;
+		this.alphabet = alphabet;
+		this.tokenTypes = tokenTypes;
+		this.skipped = skipped;
+		this.keywords = keywords;
+		this.synchronizing = synchronizingSymbols(automaton, alphabet.numberOfClasses());
+	}
+
+	/**
+	 * Finds the symbols after which no state can continue: reading such a
+	 * symbol leads either to the error state or to a state without any
+	 * transition other than to the error state.
+	 */
+	private static boolean[] synchronizingSymbols(LexicalAutomaton automaton, int numberOfClasses) {
+		int numberOfStates = automaton.numberOfStates();
+		boolean[] deadEnd = new boolean[numberOfStates];
+		for(int index = 0; index < numberOfStates; ++index) {
+			int state = automaton.stateAt(index);
+			deadEnd[index] = true;
+			for(int symbol = 0; symbol < numberOfClasses; ++symbol) {
+				deadEnd[index] &= (automaton.step(state, symbol) == LexicalAutomaton.ERROR_STATE);
+			}
+		}
+		boolean[] synchronizing = new boolean[numberOfClasses];
+		for(int symbol = 1; symbol < numberOfClasses; ++symbol) {
+			synchronizing[symbol] = true;
+			for(int index = 0; index < numberOfStates; ++index) {
+				int target = automaton.step(automaton.stateAt(index), symbol);
+				synchronizing[symbol] &= deadEnd[automaton.indexOf(target)];
+			}
+		}
+		return synchronizing;
+	}
+
+	/**
+	 * Checks whether the code point that ends with the character at the
+	 * given position is synchronizing, so that a token ends right after it.
+	 * The high surrogate of a pair ends no code point.
+	 */
+	boolean isSynchronizing(CharSequence text, int position) {
+		char c = text.charAt(position);
+		if(Character.isHighSurrogate(c) && position + 1 < text.length() && Character.isLowSurrogate(text.charAt(position + 1))) {
+			return false;
+		}
+		int codePoint = c;
+		if(Character.isLowSurrogate(c) && position > 0 && Character.isHighSurrogate(text.charAt(position - 1))) {
+			codePoint = Character.toCodePoint(text.charAt(position - 1), c);
+		}
+		return synchronizing[alphabet.classOf(codePoint)];
+	}
+
+	/**
+	 * Tokenizes the input using the threads of the given pool.
+	 *
+	 * @throws IllegalStateException if the input contains an unexpected sequence
+	 */
+	TokenBuffer tokenize(CharSequence input, ForkJoinPool pool) {
+		int length = input.length();
+		int numberOfChunks = Math.max(1, Math.min(length / MIN_CHUNK_LENGTH, CHUNKS_PER_THREAD * pool.getParallelism()));
+		int[] chunkStarts = new int[numberOfChunks + 1];
+		for(int chunk = 1; chunk < numberOfChunks; ++chunk) {
+			int boundary = (int) ((long) chunk * length / numberOfChunks);
+			int nextBoundary = (int) ((long) (chunk + 1) * length / numberOfChunks);
+			chunkStarts[chunk] = guessStart(input, boundary, nextBoundary);
+		}
+		chunkStarts[numberOfChunks] = length;
+
+		TokenBuffer[] speculations = new TokenBuffer[numberOfChunks];
+		pool.invoke(new SpeculativeScan(input, chunkStarts, speculations, 0, numberOfChunks));
+
+		TokenBuffer tokens = new TokenBuffer(tokenTypes);
+		TokenScanner scanner = new TokenScanner(automaton, alphabet, keywords);
+		int position = 0;
+		for(int chunk = 0; chunk < numberOfChunks; ++chunk) {
+			TokenBuffer speculation = speculations[chunk];
+			while(position < chunkStarts[chunk + 1]) {
+				int resynchronized = speculation.indexOfStart(position);
+				if(resynchronized >= 0) {
+					tokens.addAll(speculation, resynchronized);
+					position = speculation.end(speculation.size() - 1);
+					continue;
+				}
+				if(!scanToken(scanner, input, position, tokens)) {
+					throw TokenScanner.unexpected(input, position);
+				}
+				position = tokens.end(tokens.size() - 1);
+			}
+		}
+		tokens.endInput();
+		return (skipped == null) ? tokens : withoutSkipped(tokens);
+	}
+
+	/**
+	 * Drops the matches of skip rules once the chunks are joined, because
+	 * joining relies on the tokens covering the input without gaps.
+	 */
+	private TokenBuffer withoutSkipped(TokenBuffer tokens) {
+		TokenBuffer significant = new TokenBuffer(tokenTypes);
+		for(int i = 0; i < tokens.size(); ++i) {
+			if(!skipped[tokens.typeId(i)]) {
+				significant.add(tokens.typeId(i), tokens.start(i), tokens.end(i));
+			}
+		}
+		significant.endInput();
+		return significant;
+	}
+
+	/**
+	 * Guesses a token boundary at or after the given chunk boundary.
+	 */
+	private int guessStart(CharSequence input, int boundary, int limit) {
+		int end = Math.min(limit, boundary + MAX_SYNC_DISTANCE);
+		for(int position = boundary; position < end; ++position) {
+			if(isSynchronizing(input, position)) {
+				return position + 1;
+			}
+		}
+		return boundary;
+	}
+
+	/**
+	 * Scans all tokens starting before {@code end}, beginning at {@code from}.
+	 * An unexpected sequence ends the scan; the stitching decides whether the
+	 * true token stream ever reaches it.
+	 */
+	private TokenBuffer scanChunk(CharSequence input, int from, int end) {
+		TokenBuffer tokens = new TokenBuffer(tokenTypes);
+		TokenScanner scanner = new TokenScanner(automaton, alphabet, keywords);
+		int position = from;
+		while(position < end && scanToken(scanner, input, position, tokens)) {
+			position = tokens.end(tokens.size() - 1);
+		}
+		return tokens;
+	}
+
+	/**
+	 * Scans the longest match starting at the given position.
+	 *
+	 * @return True if a token was added, false if no rule matches.
+	 */
+	private static boolean scanToken(TokenScanner scanner, CharSequence input, int start, TokenBuffer tokens) {
+		int typeId = scanner.scan(input, start, input.length());
+		if(typeId == LexicalAutomaton.NO_TOKEN) {
+			return false;
+		}
+		tokens.add(typeId, start, scanner.end());
+		return true;
+	}
+
+
+	/**
+	 * Scans a range of chunks, splitting it until single chunks remain.
+	 */
+	private class SpeculativeScan extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final CharSequence input;
+		private final int[] chunkStarts;
+		private final TokenBuffer[] speculations;
+		private final int firstChunk;
+		private final int endChunk;
+
+		SpeculativeScan(CharSequence input, int[] chunkStarts, TokenBuffer[] speculations, int firstChunk, int endChunk) {
+			this.input = input;
+			this.chunkStarts = chunkStarts;
+			this.speculations = speculations;
+			this.firstChunk = firstChunk;
+			this.endChunk = endChunk;
+		}
+
+		@Override
+		protected void compute() {
+			if(endChunk - firstChunk == 1) {
+				speculations[firstChunk] = scanChunk(input, chunkStarts[firstChunk], chunkStarts[endChunk]);
+				return;
+			}
+			int middle = (firstChunk + endChunk) >>> 1;
+			invokeAll(
+					new SpeculativeScan(input, chunkStarts, speculations, firstChunk, middle),
+					new SpeculativeScan(input, chunkStarts, speculations, middle, endChunk)
+			);
+		}
+	}
+
+}
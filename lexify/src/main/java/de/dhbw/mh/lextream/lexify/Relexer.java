@@ -0,0 +1,75 @@
+package de.dhbw.mh.lextream.lexify;
+
+import java.util.List;
+
+/**
+ * Updates the tokens of a text after an edit by scanning only the part of
+ * the text the edit can have changed.
+ *
+ * <p>Scanning restarts at the last token boundary before the edit that is
+ * known to be unaffected by it: right after a synchronizing symbol (see
+ * {@link ParallelTokenizer}) whose successor precedes the edit. No scan of a
+ * token before the boundary can read beyond it, so those tokens stay as they
+ * are. After the edit, scanning stops as soon as a token starts where a token
+ * of the old text started, shifted by the change in length. Both texts agree
+ * from there on, and every token starts in the initial state of the
+ * automaton, so the remaining old tokens are reused as well.</p>
+ */
+class Relexer {
+
+	private final List<String> tokenTypes;
+	private final boolean[] skipped;
+	private final TokenScanner scanner;
+	private final ParallelTokenizer synchronization;
+
+	/**
+	 * @param skipped         whether each token type is discarded, or null if none is
+	 * @param keywords        the keywords to look up, or null if there are none
+	 * @param synchronization the tokenizer that knows the synchronizing symbols
+	 */
+	Relexer(LexicalAutomaton automaton, Alphabet alphabet, List<String> tokenTypes, boolean[] skipped,
+			Keywords keywords, ParallelTokenizer synchronization) {
+		this.tokenTypes = tokenTypes;
+		this.skipped = skipped;
+		this.scanner = new TokenScanner(automaton, alphabet, keywords);
+		this.synchronization = synchronization;
+	}
+
+	/**
+	 * @throws IllegalStateException if the edited text contains an unexpected sequence
+	 */
+	TokenBuffer relex(TokenBuffer previous, CharSequence text, int offset, int removed, int inserted) {
+		int restart = 0;
+		for(int position = offset - 2; position >= 0; --position) {
+			if(synchronization.isSynchronizing(text, position)) {
+				restart = position + 1;
+				break;
+			}
+		}
+		TokenBuffer tokens = new TokenBuffer(tokenTypes);
+		tokens.addShifted(previous, 0, previous.countStartingBefore(restart), 0);
+
+		int shift = inserted - removed;
+		int position = restart;
+		while(position < text.length()) {
+			if(position >= offset + inserted) {
+				int realigned = previous.indexOfStart(position - shift);
+				if(realigned >= 0) {
+					tokens.addShifted(previous, realigned, previous.size(), shift);
+					break;
+				}
+			}
+			int typeId = scanner.scan(text, position, text.length());
+			if(typeId == LexicalAutomaton.NO_TOKEN) {
+				throw TokenScanner.unexpected(text, position);
+			}
+			if(skipped == null || !skipped[typeId]) {
+				tokens.add(typeId, position, scanner.end());
+			}
+			position = scanner.end();
+		}
+		tokens.endInput();
+		return tokens;
+	}
+
+}
@@ -0,0 +1,184 @@
+package de.dhbw.mh.lextream.lexify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Fuses the automata of all lexer rules into a single product automaton.
+ *
+ * <p>Each state of the product automaton stands for the tuple of states the
+ * rule automata would be in after reading the same input. An accepting
+ * product state reports the rule that wins according to the precedence of
+ * the lexer, so a single transition per code point replaces the stepping of
+ * every rule automaton.</p>
+ */
+class RuleFusion {
+
+	private static final int ERROR_PRODUCT = 0;
+
+	private final LexicalAutomaton[] rules;
+	private final int[] precedence;
+	private final Alphabet alphabet;
+	private final int maxStates;
+	private final Map<StateTuple, Integer> stateIds = new HashMap<>();
+	private final List<StateTuple> tuples = new ArrayList<>();
+
+	private RuleFusion(LexicalAutomaton[] rules, int[] precedence, Alphabet alphabet, int maxStates) {
+		this.rules = rules;
+		this.precedence = precedence;
+		this.alphabet = alphabet;
+		this.maxStates = maxStates;
+	}
+
+	/**
+	 * Builds the product automaton of the given rule automata.
+	 *
+	 * @param rules      the automata of all rules, indexed by token id
+	 * @param precedence the precedence of each rule, higher values win
+	 * @param alphabet   the common alphabet of all rules
+	 * @param maxStates  the number of product states at which fusion is given up
+	 * @return the fused automaton, or empty if it would exceed {@code maxStates}
+	 */
+	static Optional<LexicalAutomaton> fuse(LexicalAutomaton[] rules, int[] precedence, Alphabet alphabet, int maxStates) {
+		return new RuleFusion(rules, precedence, alphabet, maxStates).execute();
+	}
+
+	private Optional<LexicalAutomaton> execute() {
+		int[] errorStates = new int[rules.length];
+		int[] initialStates = new int[rules.length];
+		for(int i = 0; i < rules.length; ++i) {
+			errorStates[i] = LexicalAutomaton.ERROR_STATE;
+			initialStates[i] = rules[i].initialState();
+		}
+		stateIdFor(new StateTuple(errorStates));
+		int initialState = stateIdFor(new StateTuple(initialStates));
+
+		List<int[]> transitions = new ArrayList<>();
+		for(int origin = 0; origin < tuples.size(); ++origin) {
+			if(tuples.size() > maxStates) {
+				return Optional.empty();
+			}
+			transitions.add(transitionsOf(origin));
+		}
+
+		int[] acceptedTokens = new int[tuples.size()];
+		for(int state = 0; state < acceptedTokens.length; ++state) {
+			acceptedTokens[state] = winningRuleOf(tuples.get(state));
+		}
+
+		int[][][] operations = null;
+		if(Arrays.stream(rules).anyMatch(LexicalAutomaton::isTagged)) {
+			operations = new int[tuples.size()][][];
+			for(int state = 0; state < operations.length; ++state) {
+				operations[state] = operationsOf(tuples.get(state));
+			}
+		}
+
+		return Optional.of(new LexicalAutomaton(
+				initialState,
+				acceptedTokens,
+				transitions.toArray(new int[transitions.size()][]),
+				operations,
+				ERROR_PRODUCT,
+				alphabet.symbols()
+		));
+	}
+
+	/**
+	 * Collects the tag operations of all rules for each transition of a
+	 * product state. The slots of different rules are disjoint, so the
+	 * operations of all rules can be recorded side by side.
+	 */
+	private int[][] operationsOf(StateTuple tuple) {
+		int[][] operations = new int[alphabet.numberOfClasses()][];
+		for(int symbol = 1; symbol < operations.length; ++symbol) {
+			int[] collected = null;
+			for(int i = 0; i < rules.length; ++i) {
+				int[] tags = rules[i].isTagged() ? rules[i].tagsOf(tuple.states[i], symbol) : null;
+				if(tags != null && collected == null) {
+					collected = tags;
+				} else if(tags != null) {
+					int length = collected.length;
+					collected = Arrays.copyOf(collected, length + tags.length);
+					System.arraycopy(tags, 0, collected, length, tags.length);
+				}
+			}
+			operations[symbol] = collected;
+		}
+		return operations;
+	}
+
+	private int[] transitionsOf(int origin) {
+		int[] transition = new int[alphabet.numberOfClasses()];
+		if(origin == ERROR_PRODUCT) {
+			return transition;
+		}
+		StateTuple tuple = tuples.get(origin);
+		for(int symbol = 1; symbol < transition.length; ++symbol) {
+			int[] targets = new int[rules.length];
+			for(int i = 0; i < rules.length; ++i) {
+				targets[i] = rules[i].step(tuple.states[i], symbol);
+			}
+			transition[symbol] = stateIdFor(new StateTuple(targets));
+		}
+		transition[Alphabet.INVALID_SYMBOL] = ERROR_PRODUCT;
+		return transition;
+	}
+
+	private int winningRuleOf(StateTuple tuple) {
+		int winner = LexicalAutomaton.NO_TOKEN;
+		for(int i = 0; i < rules.length; ++i) {
+			int token = rules[i].acceptedToken(tuple.states[i]);
+			if(token == LexicalAutomaton.NO_TOKEN) {
+				continue;
+			}
+			if(winner == LexicalAutomaton.NO_TOKEN || precedence[winner] < precedence[token]) {
+				winner = token;
+			}
+		}
+		return winner;
+	}
+
+	private int stateIdFor(StateTuple tuple) {
+		Integer id = stateIds.get(tuple);
+		if(id == null) {
+			id = tuples.size();
+			stateIds.put(tuple, id);
+			tuples.add(tuple);
+		}
+		return id;
+	}
+
+
+	/**
+	 * The states of all rule automata, used as key of a product state.
+	 */
+	private static final class StateTuple {
+		final int[] states;
+		private final int hash;
+
+		StateTuple(int[] states) {
+			this.states = states;
+			this.hash = Arrays.hashCode(states);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o)
+				return true;
+			if (o == null || getClass() != o.getClass())
+				return false;
+			return Arrays.equals(states, ((StateTuple) o).states);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+}
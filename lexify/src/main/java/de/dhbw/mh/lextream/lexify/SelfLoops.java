@@ -0,0 +1,96 @@
+package de.dhbw.mh.lextream.lexify;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import de.dhbw.mh.redeggs.CodePointRange;
+
+/**
+ * The characters on which states of an automaton loop back to themselves,
+ * such as everything but {@code *} inside a block comment, or blanks in a
+ * run of whitespace.
+ *
+ * <p>Once a scan is in such a state, the rest of the run can be skipped by
+ * testing each character against a bit set, instead of classifying it and
+ * performing a full transition. The sets are derived from the transition
+ * table, and states that loop on the same symbols share one set. A
+ * surrogate always ends the skip, so that the scan classifies a surrogate
+ * pair as one code point.</p>
+ */
+final class SelfLoops {
+
+	private static final int WORDS = (Character.MAX_VALUE + 1) >>> 6;
+
+	private final long reciprocal;
+	private final long[][] loopingChars;
+
+	private SelfLoops(LexicalAutomaton automaton, long[][] loopingChars) {
+		// the states are multiples of the stride, so this division is exact
+		this.reciprocal = ((1L << 32) + automaton.stateAt(1) - 1) / automaton.stateAt(1);
+		this.loopingChars = loopingChars;
+	}
+
+	/**
+	 * Finds the self-loops of all states but the error state.
+	 */
+	static SelfLoops of(LexicalAutomaton automaton, Alphabet alphabet) {
+		long[][] loopingChars = new long[automaton.numberOfStates()][];
+		Map<String, long[]> distinctSets = new HashMap<>();
+		for(int index = 0; index < loopingChars.length; ++index) {
+			int state = automaton.stateAt(index);
+			if(state == LexicalAutomaton.ERROR_STATE) {
+				continue;
+			}
+			boolean[] loops = new boolean[alphabet.numberOfClasses()];
+			boolean anyLoop = false;
+			for(int symbol = 1; symbol < loops.length; ++symbol) {
+				loops[symbol] = automaton.step(state, symbol) == state;
+				anyLoop |= loops[symbol];
+			}
+			if(anyLoop) {
+				loopingChars[index] = distinctSets.computeIfAbsent(Arrays.toString(loops), key -> charsOf(loops, alphabet));
+			}
+		}
+		return new SelfLoops(automaton, loopingChars);
+	}
+
+	private static long[] charsOf(boolean[] symbols, Alphabet alphabet) {
+		long[] chars = new long[WORDS];
+		for(int symbol = 1; symbol < symbols.length; ++symbol) {
+			CodePointRange range = alphabet.rangeOf(symbol);
+			if(symbols[symbol]) {
+				for(int c = range.firstCodePoint; c <= Math.min(range.lastCodePoint, Character.MAX_VALUE); ++c) {
+					if(!Character.isSurrogate((char) c)) {
+						chars[c >>> 6] |= 1L << c;
+					}
+				}
+			}
+		}
+		return chars;
+	}
+
+	/**
+	 * Skips the characters that keep the automaton in the given state, which
+	 * has to loop back to itself on at least one symbol.
+	 *
+	 * @param state  the encoded state the scan is in
+	 * @param buffer the characters to scan
+	 * @param from   the index of the first character to test
+	 * @param to     the index right after the last character to test
+	 * @return the index of the first character leaving the state, or {@code to}
+	 */
+	int skip(int state, char[] buffer, int from, int to) {
+		final long[] chars = loopingChars[(int) ((state * reciprocal) >>> 32)];
+		int index = from;
+		while(index < to) {
+			char c = buffer[index];
+			if((chars[c >>> 6] & (1L << c)) == 0) {
+				break;
+			}
+			++index;
+		}
+		return index;
+	}
+
+}
@@ -15,7 +15,7 @@ abstract class SymbolStrategy {
 		if(arrayBuilder.isAppropriate()) {
 			return arrayBuilder.build();
 		}
-		return new SortedListSymbolStrategy(symbolMap);
+		return new PagedSymbolStrategy(symbolMap);
 	}
 
 }
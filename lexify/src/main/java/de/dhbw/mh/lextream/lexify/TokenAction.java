@@ -0,0 +1,106 @@
+package de.dhbw.mh.lextream.lexify;
+
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * A semantic action that is called as soon as a token has been matched,
+ * with the range of its lexeme in the scanned characters. Converting the
+ * lexeme right there needs neither a substring nor a second pass.
+ *
+ * @see Lexer#withAction(String, TokenAction)
+ */
+@FunctionalInterface
+public interface TokenAction {
+
+	/**
+	 * Handles a matched token. The characters are only valid during the call.
+	 *
+	 * @param input the scanned characters
+	 * @param start the index of the first character of the lexeme in {@code input}
+	 * @param end   the index right after the last character of the lexeme
+	 */
+	void matched(CharSequence input, int start, int end);
+
+
+	/**
+	 * Parses lexemes like {@code 42} or {@code -7} as decimal integers.
+	 *
+	 * @param values the consumer receiving the value of each lexeme
+	 * @throws NumberFormatException when called on a lexeme that is no
+	 *                               decimal integer or does not fit into a {@code long}
+	 */
+	static TokenAction decimal(LongConsumer values) {
+		return (input, start, end) -> {
+			boolean negative = end - start > 1 && input.charAt(start) == '-';
+			int first = (negative || (end - start > 1 && input.charAt(start) == '+')) ? start + 1 : start;
+			if(first == end) {
+				throw numberFormat(input, start, end);
+			}
+			// accumulates negatively, because Long.MIN_VALUE has no positive counterpart
+			long value = 0;
+			for(int index = first; index < end; ++index) {
+				int digit = input.charAt(index) - '0';
+				if(digit < 0 || digit > 9 || value < (Long.MIN_VALUE + digit) / 10) {
+					throw numberFormat(input, start, end);
+				}
+				value = 10 * value - digit;
+			}
+			if(!negative && value == Long.MIN_VALUE) {
+				throw numberFormat(input, start, end);
+			}
+			values.accept(negative ? value : -value);
+		};
+	}
+
+	/**
+	 * Parses lexemes like {@code 0x1F} or {@code ff} as hexadecimal integers.
+	 * Up to 16 digits are accepted, so {@code ffffffffffffffff} yields -1.
+	 *
+	 * @param values the consumer receiving the value of each lexeme
+	 * @throws NumberFormatException when called on a lexeme that is no
+	 *                               hexadecimal integer or has more than 16 digits
+	 */
+	static TokenAction hexadecimal(LongConsumer values) {
+		return (input, start, end) -> {
+			int first = start;
+			if(end - start > 2 && input.charAt(start) == '0' && (input.charAt(start + 1) | 0x20) == 'x') {
+				first += 2;
+			}
+			if(first == end || end - first > 16) {
+				throw numberFormat(input, start, end);
+			}
+			long value = 0;
+			for(int index = first; index < end; ++index) {
+				int digit = Character.digit(input.charAt(index), 16);
+				if(digit < 0) {
+					throw numberFormat(input, start, end);
+				}
+				value = (value << 4) | digit;
+			}
+			values.accept(value);
+		};
+	}
+
+	/**
+	 * Hashes lexemes such as identifiers. The hash equals
+	 * {@link String#hashCode()} of the lexeme, so it can be used to look up
+	 * keywords or symbols without creating the string first.
+	 *
+	 * @param hashes the consumer receiving the hash of each lexeme
+	 */
+	static TokenAction identifierHash(IntConsumer hashes) {
+		return (input, start, end) -> {
+			int hash = 0;
+			for(int index = start; index < end; ++index) {
+				hash = 31 * hash + input.charAt(index);
+			}
+			hashes.accept(hash);
+		};
+	}
+
+	private static NumberFormatException numberFormat(CharSequence input, int start, int end) {
+		return new NumberFormatException(String.format("Not a number: '%s'", input.subSequence(start, end)));
+	}
+
+}
@@ -0,0 +1,215 @@
+package de.dhbw.mh.lextream.lexify;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The tokens of one or more inputs, stored column by column.
+ *
+ * <p>The tokens are stored input by input. Their type ids, start offsets and
+ * end offsets are kept in parallel {@code int} columns, so adding a token
+ * allocates no object and the tokens of a large input take 12 bytes each.
+ * The columns are split into blocks of fixed size, so growing the buffer
+ * never copies tokens.</p>
+ */
+public final class TokenBuffer {
+
+	private static final int BLOCK_BITS = 12;
+	private static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+	private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+	private final List<String> tokenTypes;
+	private int[][] typeIds = new int[1][BLOCK_SIZE];
+	private int[][] starts = new int[1][BLOCK_SIZE];
+	private int[][] ends = new int[1][BLOCK_SIZE];
+	private int numberOfBlocks = 1;
+	private int size = 0;
+	private int[] inputEnds = new int[1];
+	private int numberOfInputs = 0;
+
+	TokenBuffer(List<String> tokenTypes) {
+		this.tokenTypes = tokenTypes;
+	}
+
+	/**
+	 * Returns the number of tokens of all inputs.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of inputs whose tokens are stored.
+	 */
+	public int numberOfInputs() {
+		return numberOfInputs;
+	}
+
+	/**
+	 * Returns the index of the first token of an input.
+	 */
+	public int firstTokenOf(int input) {
+		Objects.checkIndex(input, numberOfInputs);
+		return (input == 0) ? 0 : inputEnds[input - 1];
+	}
+
+	/**
+	 * Returns the index right after the last token of an input.
+	 */
+	public int endOfTokensOf(int input) {
+		Objects.checkIndex(input, numberOfInputs);
+		return inputEnds[input];
+	}
+
+	/**
+	 * Returns the type id of a token, an index into {@link Lexer#tokenTypes()}.
+	 */
+	public int typeId(int index) {
+		Objects.checkIndex(index, size);
+		return typeIds[index >>> BLOCK_BITS][index & BLOCK_MASK];
+	}
+
+	/**
+	 * Returns the type of a token.
+	 */
+	public String type(int index) {
+		return tokenTypes.get(typeId(index));
+	}
+
+	/**
+	 * Returns the offset of the first character of a token.
+	 */
+	public int start(int index) {
+		Objects.checkIndex(index, size);
+		return starts[index >>> BLOCK_BITS][index & BLOCK_MASK];
+	}
+
+	/**
+	 * Returns the offset right after the last character of a token.
+	 */
+	public int end(int index) {
+		Objects.checkIndex(index, size);
+		return ends[index >>> BLOCK_BITS][index & BLOCK_MASK];
+	}
+
+	void add(int typeId, int start, int end) {
+		int block = size >>> BLOCK_BITS;
+		if(block == numberOfBlocks) {
+			addBlock();
+		}
+		int offset = size & BLOCK_MASK;
+		typeIds[block][offset] = typeId;
+		starts[block][offset] = start;
+		ends[block][offset] = end;
+		++size;
+	}
+
+	/**
+	 * Appends the tokens of another buffer, starting at the given index.
+	 */
+	void addAll(TokenBuffer other, int from) {
+		addShifted(other, from, other.size, 0);
+	}
+
+	/**
+	 * Appends the tokens {@code [from, to)} of another buffer, moving their
+	 * offsets by {@code shift}.
+	 */
+	void addShifted(TokenBuffer other, int from, int to, int shift) {
+		int first = size;
+		while(from < to) {
+			int block = size >>> BLOCK_BITS;
+			if(block == numberOfBlocks) {
+				addBlock();
+			}
+			int offset = size & BLOCK_MASK;
+			int otherBlock = from >>> BLOCK_BITS;
+			int otherOffset = from & BLOCK_MASK;
+			int count = Math.min(Math.min(BLOCK_SIZE - offset, BLOCK_SIZE - otherOffset), to - from);
+			System.arraycopy(other.typeIds[otherBlock], otherOffset, typeIds[block], offset, count);
+			System.arraycopy(other.starts[otherBlock], otherOffset, starts[block], offset, count);
+			System.arraycopy(other.ends[otherBlock], otherOffset, ends[block], offset, count);
+			size += count;
+			from += count;
+		}
+		for(int index = first; shift != 0 && index < size; ++index) {
+			starts[index >>> BLOCK_BITS][index & BLOCK_MASK] += shift;
+			ends[index >>> BLOCK_BITS][index & BLOCK_MASK] += shift;
+		}
+	}
+
+	/**
+	 * Marks all tokens added since the end of the previous input as the
+	 * tokens of the next input.
+	 */
+	void endInput() {
+		if(numberOfInputs == inputEnds.length) {
+			inputEnds = Arrays.copyOf(inputEnds, 2 * numberOfInputs);
+		}
+		inputEnds[numberOfInputs++] = size;
+	}
+
+	/**
+	 * Removes all tokens and inputs, keeping the allocated blocks.
+	 */
+	void clear() {
+		size = 0;
+		numberOfInputs = 0;
+	}
+
+	/**
+	 * Finds the token starting at the given offset.
+	 *
+	 * @param start the offset of the first character of the token
+	 * @return the index of the token, or -1 if no token starts there
+	 */
+	int indexOfStart(int start) {
+		if(size == 0) {
+			return -1;
+		}
+		int low = 0;
+		int high = (size - 1) >>> BLOCK_BITS;
+		while(low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if(starts[middle][0] <= start) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		int length = (low == (size - 1) >>> BLOCK_BITS) ? ((size - 1) & BLOCK_MASK) + 1 : BLOCK_SIZE;
+		int offset = Arrays.binarySearch(starts[low], 0, length, start);
+		return (offset >= 0) ? (low << BLOCK_BITS) + offset : -1;
+	}
+
+	/**
+	 * Counts the tokens starting before the given offset.
+	 */
+	int countStartingBefore(int offset) {
+		int low = 0;
+		int high = size;
+		while(low < high) {
+			int middle = (low + high) >>> 1;
+			if(starts[middle >>> BLOCK_BITS][middle & BLOCK_MASK] < offset) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private void addBlock() {
+		if(numberOfBlocks == typeIds.length) {
+			typeIds = Arrays.copyOf(typeIds, 2 * numberOfBlocks);
+			starts = Arrays.copyOf(starts, 2 * numberOfBlocks);
+			ends = Arrays.copyOf(ends, 2 * numberOfBlocks);
+		}
+		typeIds[numberOfBlocks] = new int[BLOCK_SIZE];
+		starts[numberOfBlocks] = new int[BLOCK_SIZE];
+		ends[numberOfBlocks] = new int[BLOCK_SIZE];
+		++numberOfBlocks;
+	}
+
+}
@@ -0,0 +1,224 @@
+package de.dhbw.mh.lextream.lexify;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tokenizes the chunks of bytes of an upstream publisher for
+ * {@link Lexer#newPublisher(Charset)}, passing the tokens on to a single
+ * subscriber no faster than it requests them.
+ *
+ * <p>A chunk is only requested from upstream once all tokens of the previous
+ * chunks have been delivered and the subscriber still wants more, so at most
+ * the tokens of one chunk wait for demand. Each chunk is fed to a
+ * {@link Lexer.PushInstance} on the thread delivering it. Tokens are handed
+ * to the subscriber by whichever thread finds them deliverable, but never by
+ * two threads at once and never recursively from within a call of the
+ * subscriber.</p>
+ */
+class TokenPublisher implements Flow.Processor<ByteBuffer, Lexer.Token> {
+
+	private final Lexer.PushInstance scanner;
+	private final Queue<Lexer.Token> tokens = new ConcurrentLinkedQueue<>();
+	private final AtomicLong demand = new AtomicLong();
+	private final AtomicInteger drains = new AtomicInteger();
+	private Flow.Subscription upstream;
+	private Flow.Subscriber<? super Lexer.Token> downstream;
+	private volatile boolean subscribed = false;
+	private volatile boolean awaitingChunk = false;
+	private volatile boolean upstreamCompleted = false;
+	private volatile Throwable failure;
+	private volatile boolean cancelled = false;
+	private boolean terminated = false;
+
+	TokenPublisher(Lexer lexer, Charset charset) {
+		this.scanner = lexer.newPushInstance(charset, tokens::add);
+	}
+
+	/**
+	 * Subscribes the one subscriber of the tokens. Further subscribers are
+	 * rejected with an {@link IllegalStateException}.
+	 */
+	@Override
+	public void subscribe(Flow.Subscriber<? super Lexer.Token> subscriber) {
+		boolean first;
+		synchronized(this) {
+			first = (downstream == null);
+			if(first) {
+				downstream = subscriber;
+			}
+		}
+		if(!first) {
+			subscriber.onSubscribe(new Rejection());
+			subscriber.onError(new IllegalStateException("Tokens can only be published to one subscriber."));
+			return;
+		}
+		subscriber.onSubscribe(new Demand());
+		subscribed = true;
+		drain();
+	}
+
+	@Override
+	public void onSubscribe(Flow.Subscription subscription) {
+		synchronized(this) {
+			if(upstream != null) {
+				subscription.cancel();
+				return;
+			}
+			upstream = subscription;
+		}
+		drain();
+	}
+
+	/**
+	 * Scans the next chunk of bytes. Its bytes are all consumed before this
+	 * method returns.
+	 */
+	@Override
+	public void onNext(ByteBuffer bytes) {
+		if(cancelled || failure != null) {
+			return;
+		}
+		try {
+			scanner.feed(bytes);
+		} catch(IllegalStateException e) {
+			fail(e);
+			return;
+		}
+		awaitingChunk = false;
+		drain();
+	}
+
+	@Override
+	public void onError(Throwable throwable) {
+		failure = throwable;
+		drain();
+	}
+
+	@Override
+	public void onComplete() {
+		try {
+			scanner.endOfInput();
+		} catch(IllegalStateException e) {
+			fail(e);
+			return;
+		}
+		upstreamCompleted = true;
+		drain();
+	}
+
+	private void fail(IllegalStateException e) {
+		failure = e;
+		cancelUpstream();
+		drain();
+	}
+
+	private synchronized void cancelUpstream() {
+		if(upstream != null) {
+			upstream.cancel();
+		}
+	}
+
+	/**
+	 * Delivers as many tokens as requested and decides whether the subscriber
+	 * is done or the next chunk is needed. Calls arriving while another call
+	 * is delivering only make that call loop once more.
+	 */
+	private void drain() {
+		if(drains.getAndIncrement() != 0) {
+			return;
+		}
+		int missed = 1;
+		do {
+			if(subscribed && !terminated) {
+				deliver();
+			}
+			missed = drains.addAndGet(-missed);
+		} while(missed != 0);
+	}
+
+	private void deliver() {
+		if(cancelled) {
+			terminated = true;
+			tokens.clear();
+			return;
+		}
+		if(failure != null) {
+			terminated = true;
+			tokens.clear();
+			downstream.onError(failure);
+			return;
+		}
+		while(demand.get() > 0 && !cancelled) {
+			Lexer.Token token = tokens.poll();
+			if(token == null) {
+				break;
+			}
+			demand.decrementAndGet();
+			downstream.onNext(token);
+		}
+		if(!tokens.isEmpty() || cancelled) {
+			return;
+		}
+		if(upstreamCompleted) {
+			terminated = true;
+			downstream.onComplete();
+		} else if(demand.get() > 0 && !awaitingChunk) {
+			Flow.Subscription subscription;
+			synchronized(this) {
+				subscription = upstream;
+			}
+			if(subscription != null) {
+				awaitingChunk = true;
+				subscription.request(1);
+			}
+		}
+	}
+
+
+	/**
+	 * The subscription of the subscriber of the tokens.
+	 */
+	private class Demand implements Flow.Subscription {
+
+		@Override
+		public void request(long n) {
+			if(n <= 0) {
+				cancelUpstream();
+				failure = new IllegalArgumentException(String.format("Requested number of tokens must be positive, but was %d.", n));
+			} else {
+				demand.getAndAccumulate(n, (requested, more) -> (requested + more < 0) ? Long.MAX_VALUE : requested + more);
+			}
+			drain();
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+			cancelUpstream();
+			drain();
+		}
+	}
+
+	/**
+	 * The subscription of a subscriber that is rejected right away.
+	 */
+	private static class Rejection implements Flow.Subscription {
+
+		@Override
+		public void request(long n) {
+			// nothing will ever be published
+		}
+
+		@Override
+		public void cancel() {
+			// nothing to cancel
+		}
+	}
+
+}
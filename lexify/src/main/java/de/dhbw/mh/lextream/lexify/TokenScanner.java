@@ -0,0 +1,74 @@
+package de.dhbw.mh.lextream.lexify;
+
+/**
+ * Scans single tokens of a text with the fused automaton, for the
+ * tokenizers that work on a complete text rather than through a
+ * {@link Lexer.Instance}: the batch, parallel and incremental tokenizers and
+ * token streams.
+ *
+ * <p>A scanner remembers the end of its last match, so each thread needs a
+ * scanner of its own.</p>
+ */
+final class TokenScanner {
+
+	private final LexicalAutomaton automaton;
+	private final Alphabet alphabet;
+	private final Keywords keywords;
+	private int endOfToken;
+
+	/**
+	 * @param keywords the keywords to look up, or null if there are none
+	 */
+	TokenScanner(LexicalAutomaton automaton, Alphabet alphabet, Keywords keywords) {
+		this.automaton = automaton;
+		this.alphabet = alphabet;
+		this.keywords = keywords;
+	}
+
+	/**
+	 * Scans the longest match starting at the given position and ending at
+	 * the latest at the given limit. A surrogate pair is read as one code
+	 * point, like by a {@link Lexer.Instance}.
+	 *
+	 * @return The type id of the match, whose end is left in {@link #end()},
+	 *         or {@link LexicalAutomaton#NO_TOKEN} if no rule matches.
+	 */
+	int scan(CharSequence text, int start, int limit) {
+		int state = automaton.initialState();
+		int tokenId = LexicalAutomaton.NO_TOKEN;
+		for(int position = start; position < limit; ++position) {
+			int codePoint = text.charAt(position);
+			if(Character.isHighSurrogate((char) codePoint) && position + 1 < limit && Character.isLowSurrogate(text.charAt(position + 1))) {
+				codePoint = Character.toCodePoint((char) codePoint, text.charAt(++position));
+			}
+			state = automaton.step(state, alphabet.classOf(codePoint));
+			if(state == LexicalAutomaton.ERROR_STATE) {
+				break;
+			}
+			if(automaton.accepts(state)) {
+				tokenId = automaton.acceptedToken(state);
+				endOfToken = position + 1;
+			}
+		}
+		if(keywords != null) {
+			tokenId = keywords.reclassify(tokenId, text, start, endOfToken);
+		}
+		return tokenId;
+	}
+
+	/**
+	 * Returns the offset right after the last match.
+	 */
+	int end() {
+		return endOfToken;
+	}
+
+	/**
+	 * Builds the exception for an unexpected sequence at the given position.
+	 */
+	static IllegalStateException unexpected(CharSequence text, int position) {
+		int end = position + Character.charCount(Character.codePointAt(text, position));
+		return new IllegalStateException(String.format("Unexpected sequence '%s'", text.subSequence(position, end)));
+	}
+
+}
@@ -0,0 +1,182 @@
+package de.dhbw.mh.lextream.lexify;
+
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Walks the tokens of a range of an input for {@link Lexer#stream(CharSequence)}.
+ *
+ * <p>As long as it covers the whole input, the spliterator walks the tokens
+ * with a {@link Lexer.Instance}, so a sequential stream sees exactly the
+ * tokens of an instance. A parallel stream splits the input first: a range
+ * always starts and ends at a token boundary, so every range is tokenized on
+ * its own by a {@link TokenScanner}, without stitching. Splitting cuts the
+ * remaining range right after a synchronizing symbol (see
+ * {@link ParallelTokenizer}) near its middle: no token continues after such
+ * a symbol, so a token of any valid input ends right there. If no
+ * synchronizing symbol is close to the middle, the range is not split.</p>
+ */
+class TokenSpliterator implements Spliterator<Lexer.Token> {
+
+	private static final int MIN_SPLIT_LENGTH = 1 << 14;
+	private static final int MAX_SYNC_DISTANCE = 1 << 12;
+
+	private final Lexer lexer;
+	private final LexicalAutomaton automaton;
+	private final Alphabet alphabet;
+	private final List<String> tokenTypes;
+	private final boolean[] skipped;
+	private final Keywords keywords;
+	private final ParallelTokenizer synchronization;
+	private final CharSequence input;
+	private int position;
+	private final int end;
+	private Lexer.Instance instance;
+	private TokenScanner scanner;
+
+	/**
+	 * @param skipped         whether each token type is discarded, or null if none is
+	 * @param keywords        the keywords to look up, or null if there are none
+	 * @param synchronization the tokenizer that knows the synchronizing symbols,
+	 *                        or null if the input must not be split
+	 * @param start           a token boundary of the input, at which the range starts
+	 * @param end             a token boundary of the input, at which the range ends
+	 */
+	TokenSpliterator(Lexer lexer, LexicalAutomaton automaton, Alphabet alphabet, List<String> tokenTypes,
+			boolean[] skipped, Keywords keywords, ParallelTokenizer synchronization, CharSequence input, int start, int end) {
+		this.lexer = lexer;
+		this.automaton = automaton;
+		this.alphabet = alphabet;
+		this.tokenTypes = tokenTypes;
+		this.skipped = skipped;
+		this.keywords = keywords;
+		this.synchronization = synchronization;
+		this.input = input;
+		this.position = start;
+		this.end = end;
+	}
+
+	/**
+	 * @throws IllegalStateException if the input contains an unexpected sequence
+	 */
+	@Override
+	public boolean tryAdvance(Consumer<? super Lexer.Token> action) {
+		if(coversInput()) {
+			if(!instance.next()) {
+				position = end;
+				return false;
+			}
+			position = instance.end();
+			action.accept(instance.getToken());
+			return true;
+		}
+		while(position < end) {
+			int start = position;
+			int typeId = scanToken(start);
+			position = scanner.end();
+			if(skipped == null || !skipped[typeId]) {
+				action.accept(new Lexer.Token(tokenTypes.get(typeId), lexemeOf(start), start, position));
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @throws IllegalStateException if the input contains an unexpected sequence
+	 */
+	@Override
+	public void forEachRemaining(Consumer<? super Lexer.Token> action) {
+		if(coversInput()) {
+			while(instance.next()) {
+				action.accept(instance.getToken());
+			}
+			position = end;
+			return;
+		}
+		while(position < end) {
+			int start = position;
+			int typeId = scanToken(start);
+			position = scanner.end();
+			if(skipped == null || !skipped[typeId]) {
+				action.accept(new Lexer.Token(tokenTypes.get(typeId), lexemeOf(start), start, position));
+			}
+		}
+	}
+
+	/**
+	 * Hands the first half of the remaining range over to a new spliterator.
+	 *
+	 * @return The spliterator for the first half, or null if the input must
+	 *         not be split, if the walk has already started, if the range is
+	 *         too short or if no safe token boundary is close to its middle.
+	 */
+	@Override
+	public Spliterator<Lexer.Token> trySplit() {
+		if(synchronization == null || instance != null || end - position < MIN_SPLIT_LENGTH) {
+			return null;
+		}
+		int middle = (position + end) >>> 1;
+		int limit = Math.min(end - 1, middle + MAX_SYNC_DISTANCE);
+		for(int boundary = middle; boundary < limit; ++boundary) {
+			if(synchronization.isSynchronizing(input, boundary)) {
+				int start = position;
+				position = boundary + 1;
+				return new TokenSpliterator(lexer, automaton, alphabet, tokenTypes, skipped, keywords, synchronization,
+						input, start, position);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Estimates the number of remaining tokens by the number of remaining
+	 * characters, which bounds it from above.
+	 */
+	@Override
+	public long estimateSize() {
+		return end - position;
+	}
+
+	@Override
+	public int characteristics() {
+		return ORDERED | NONNULL;
+	}
+
+	/**
+	 * Decides on the first token how to walk the range: with an instance if
+	 * the range is still the whole input, or else with a scanner.
+	 *
+	 * @return True if the range is walked by the instance.
+	 */
+	private boolean coversInput() {
+		if(instance == null && scanner == null) {
+			if(position == 0 && end == input.length()) {
+				instance = lexer.newInstance(input);
+			} else {
+				scanner = new TokenScanner(automaton, alphabet, keywords);
+			}
+		}
+		return instance != null;
+	}
+
+	private String lexemeOf(int start) {
+		return input.subSequence(start, scanner.end()).toString();
+	}
+
+	/**
+	 * Scans the token starting at the given position.
+	 *
+	 * @return The type id of the token, whose end is left in the scanner.
+	 * @throws IllegalStateException if no rule matches
+	 */
+	private int scanToken(int start) {
+		int typeId = scanner.scan(input, start, end);
+		if(typeId == LexicalAutomaton.NO_TOKEN) {
+			throw TokenScanner.unexpected(input, start);
+		}
+		return typeId;
+	}
+
+}
@@ -0,0 +1,281 @@
+package de.dhbw.mh.lextream.lexify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A lexical automaton that reads UTF-8 encoded bytes instead of code points.
+ *
+ * <p>The automaton is derived from a code point automaton by expanding every
+ * multi-byte code point range into transitions on byte sequences. The first
+ * states of this automaton correspond one-to-one to the states of the code
+ * point automaton. Intermediate states, entered after the first bytes of a
+ * multi-byte sequence, never accept, so every match ends at a code point
+ * boundary. Intermediate states with the same transitions are shared, and
+ * sequences that can only lead to the error state go there right away.
+ * Invalid UTF-8 leads to the error state as well.</p>
+ *
+ * <p>Like {@link LexicalAutomaton}, states are encoded as offsets into a
+ * single row-major table of 256 columns, with the error state first.</p>
+ */
+class Utf8Automaton {
+
+	static final int ERROR_STATE = 0;
+
+	private static final int ROW_BITS = 8;
+	private static final int ROW_SIZE = 1 << ROW_BITS;
+	private static final int FIRST_CONTINUATION = 0x80;
+	private static final int LAST_CONTINUATION = 0xBF;
+	private static final int CONTINUATIONS = LAST_CONTINUATION - FIRST_CONTINUATION + 1;
+	private static final int CONTINUATION_BITS = 6;
+	private static final int INVALID = -1;
+
+	private final int[] table;
+	private final int[] acceptedTokens;
+	private final int initialState;
+
+	private Utf8Automaton(int[] table, int[] acceptedTokens, int initialState) {
+		this.table = table;
+		this.acceptedTokens = acceptedTokens;
+		this.initialState = initialState;
+	}
+
+	/**
+	 * Compiles the byte-level equivalent of a code point automaton.
+	 *
+	 * @param automaton the automaton to translate
+	 * @param alphabet  the alphabet the automaton reads
+	 * @return an automaton accepting the UTF-8 encodings of the same tokens
+	 */
+	static Utf8Automaton of(LexicalAutomaton automaton, Alphabet alphabet) {
+		return new Compiler(automaton, alphabet).compile();
+	}
+
+	int initialState() {
+		return initialState;
+	}
+
+	int numberOfStates() {
+		return acceptedTokens.length;
+	}
+
+	/**
+	 * Returns the token accepted in the given state.
+	 *
+	 * @param state the encoded state
+	 * @return the token id, or {@link LexicalAutomaton#NO_TOKEN} if the state is not accepting
+	 */
+	int acceptedToken(int state) {
+		return acceptedTokens[state >>> ROW_BITS];
+	}
+
+	/**
+	 * Performs a single transition.
+	 *
+	 * @param state the encoded origin state
+	 * @param b     the byte read
+	 * @return the encoded target state, {@link #ERROR_STATE} if there is none
+	 */
+	int step(int state, byte b) {
+		return table[state + (b & 0xFF)];
+	}
+
+
+	/**
+	 * Translates the transitions of each state into transitions on bytes.
+	 *
+	 * <p>The code points of all multi-byte sequences are first sorted into a
+	 * tree of continuation bytes whose leaves are symbol classes, independent
+	 * of any state. Each state then only has to look up the targets of the
+	 * classes at the leaves.</p>
+	 */
+	private static class Compiler {
+		private final LexicalAutomaton automaton;
+		private final Alphabet alphabet;
+		private final Map<Node, Integer> nodeIds = new HashMap<>();
+		private final List<Node> nodes = new ArrayList<>();
+		private final int[] nodeOfLead = new int[ROW_SIZE];
+		private final Map<Row, Integer> rowIds = new HashMap<>();
+		private final List<int[]> rows = new ArrayList<>();
+
+		Compiler(LexicalAutomaton automaton, Alphabet alphabet) {
+			this.automaton = automaton;
+			this.alphabet = alphabet;
+		}
+
+		Utf8Automaton compile() {
+			sortSequencesByLeadByte();
+
+			int numberOfStates = automaton.numberOfStates();
+			for(int index = 0; index < numberOfStates; ++index) {
+				rows.add(null);
+			}
+			for(int index = 0; index < numberOfStates; ++index) {
+				int state = automaton.stateAt(index);
+				int[] row = new int[ROW_SIZE];
+				if(state != LexicalAutomaton.ERROR_STATE) {
+					for(int b = 0; b < FIRST_CONTINUATION; ++b) {
+						row[b] = encode(automaton.step(state, alphabet.classOf(b)));
+					}
+					Map<Integer, Integer> visited = new HashMap<>();
+					for(int lead = 0; lead < ROW_SIZE; ++lead) {
+						if(nodeOfLead[lead] != INVALID) {
+							row[lead] = intermediateState(state, nodeOfLead[lead], visited);
+						}
+					}
+				}
+				rows.set(index, row);
+			}
+
+			int[] table = new int[rows.size() * ROW_SIZE];
+			int[] acceptedTokens = new int[rows.size()];
+			Arrays.fill(acceptedTokens, LexicalAutomaton.NO_TOKEN);
+			for(int index = 0; index < rows.size(); ++index) {
+				System.arraycopy(rows.get(index), 0, table, index << ROW_BITS, ROW_SIZE);
+			}
+			for(int index = 0; index < numberOfStates; ++index) {
+				acceptedTokens[index] = automaton.acceptedToken(automaton.stateAt(index));
+			}
+			return new Utf8Automaton(table, acceptedTokens, encode(automaton.initialState()));
+		}
+
+		private int encode(int state) {
+			return automaton.indexOf(state) << ROW_BITS;
+		}
+
+		/**
+		 * Builds the continuation tree below each valid lead byte, excluding
+		 * overlong encodings, surrogates and code points beyond U+10FFFF.
+		 */
+		private void sortSequencesByLeadByte() {
+			Arrays.fill(nodeOfLead, INVALID);
+			for(int lead = 0xC2; lead <= 0xDF; ++lead) {
+				nodeOfLead[lead] = node(1, (lead & 0x1F) << 6, FIRST_CONTINUATION, LAST_CONTINUATION);
+			}
+			for(int lead = 0xE0; lead <= 0xEF; ++lead) {
+				int first = (lead == 0xE0) ? 0xA0 : FIRST_CONTINUATION;
+				int last = (lead == 0xED) ? 0x9F : LAST_CONTINUATION;
+				nodeOfLead[lead] = node(2, (lead & 0x0F) << 12, first, last);
+			}
+			for(int lead = 0xF0; lead <= 0xF4; ++lead) {
+				int first = (lead == 0xF0) ? 0x90 : FIRST_CONTINUATION;
+				int last = (lead == 0xF4) ? 0x8F : LAST_CONTINUATION;
+				nodeOfLead[lead] = node(3, (lead & 0x07) << 18, first, last);
+			}
+		}
+
+		/**
+		 * Returns the node for the code points starting at {@code base} that
+		 * still need {@code level} continuation bytes.
+		 */
+		private int node(int level, int base, int firstContinuation, int lastContinuation) {
+			int[] children = new int[CONTINUATIONS];
+			Arrays.fill(children, INVALID);
+			int shift = (level - 1) * CONTINUATION_BITS;
+			for(int b = firstContinuation; b <= lastContinuation; ++b) {
+				int codePoint = base + ((b - FIRST_CONTINUATION) << shift);
+				children[b - FIRST_CONTINUATION] = (level == 1)
+						? alphabet.classOf(codePoint)
+						: node(level - 1, codePoint, FIRST_CONTINUATION, LAST_CONTINUATION);
+			}
+			return nodeIds.computeIfAbsent(new Node(level, children), key -> {
+				nodes.add(key);
+				return nodes.size() - 1;
+			});
+		}
+
+		/**
+		 * Returns the state the automaton enters in {@code state} after reading
+		 * the bytes leading to {@code node}.
+		 */
+		private int intermediateState(int state, int node, Map<Integer, Integer> visited) {
+			Integer known = visited.get(node);
+			if(known != null) {
+				return known;
+			}
+			Node content = nodes.get(node);
+			int[] row = new int[ROW_SIZE];
+			boolean dead = true;
+			for(int i = 0; i < CONTINUATIONS; ++i) {
+				int child = content.children[i];
+				if(child == INVALID) {
+					continue;
+				}
+				int target = (content.level == 1)
+						? encode(automaton.step(state, child))
+						: intermediateState(state, child, visited);
+				row[FIRST_CONTINUATION + i] = target;
+				dead &= (target == ERROR_STATE);
+			}
+			int id = dead ? ERROR_STATE : rowIds.computeIfAbsent(new Row(row), key -> {
+				rows.add(key.targets);
+				return (rows.size() - 1) << ROW_BITS;
+			});
+			visited.put(node, id);
+			return id;
+		}
+	}
+
+
+	/**
+	 * The children of a continuation byte tree node, compared by value.
+	 */
+	private static final class Node {
+		final int level;
+		final int[] children;
+		private final int hash;
+
+		Node(int level, int[] children) {
+			this.level = level;
+			this.children = children;
+			this.hash = 31 * level + Arrays.hashCode(children);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o)
+				return true;
+			if (o == null || getClass() != o.getClass())
+				return false;
+			Node other = (Node) o;
+			return level == other.level && Arrays.equals(children, other.children);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+
+	/**
+	 * The transitions of an intermediate state, compared by value.
+	 */
+	private static final class Row {
+		final int[] targets;
+		private final int hash;
+
+		Row(int[] targets) {
+			this.targets = targets;
+			this.hash = Arrays.hashCode(targets);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o)
+				return true;
+			if (o == null || getClass() != o.getClass())
+				return false;
+			return Arrays.equals(targets, ((Row) o).targets);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+}
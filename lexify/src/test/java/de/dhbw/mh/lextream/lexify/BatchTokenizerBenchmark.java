@@ -0,0 +1,50 @@
+package de.dhbw.mh.lextream.lexify;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import de.dhbw.mh.lextream.lexport.LexerSpecification;
+
+/**
+ * Compares tokenizing many short inputs with an instance per input against
+ * tokenizing them as one batch.
+ */
+class BatchTokenizerBenchmark {
+
+	private static final int NUMBER_OF_INPUTS = 1 << 20;
+
+	public static void main(String... args) {
+		LexerSpecification spec = TestAutomata.specification(
+				TestAutomata.oneOrMore('a', 'z'), "WORD",
+				TestAutomata.oneOrMore('0', '9'), "NUMBER",
+				TestAutomata.oneOrMore(' ', ' '), "BLANK",
+				TestAutomata.literal("."), "DOT",
+				TestAutomata.literal("-"), "DASH"
+		);
+		Lexer lexer = Lexer.from(spec);
+		String[] samples = {"GET", "200", "10.0.0.1", "user-agent", "42", "ok", "2024-01-31", "api v2"};
+		Random random = new Random(42);
+		List<String> inputs = new ArrayList<>();
+		long characters = 0;
+		for(int i = 0; i < NUMBER_OF_INPUTS; ++i) {
+			String input = samples[random.nextInt(samples.length)].toLowerCase();
+			inputs.add(input);
+			characters += input.length();
+		}
+
+		BenchmarkRunner.measure("instance per input", characters, () -> {
+			TokenBuffer tokens = new TokenBuffer(lexer.tokenTypes());
+			for(String input : inputs) {
+				Lexer.Instance instance = lexer.newInstance(input);
+				while(instance.next()) {
+					tokens.add(instance.typeId(), instance.start(), instance.end());
+				}
+				tokens.endInput();
+			}
+			return tokens.size();
+		});
+		BenchmarkRunner.measure("batch", characters, () -> lexer.tokenizeAll(inputs).size());
+	}
+
+}
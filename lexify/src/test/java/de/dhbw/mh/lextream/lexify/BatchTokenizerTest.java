@@ -0,0 +1,69 @@
+package de.dhbw.mh.lextream.lexify;
+
+import static de.dhbw.mh.lextream.lexify.TestAutomata.ARITHMETIC_INPUT;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.arithmetic;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.tokenize;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class BatchTokenizerTest {
+
+	@Test
+	void tokenizesBatchesOfInputsInOrder() {
+		Lexer lexer = Lexer.from(arithmetic());
+		List<String> inputs = new ArrayList<>();
+		for(int i = 0; i < 50; ++i) {
+			inputs.add(ARITHMETIC_INPUT.substring(0, i % ARITHMETIC_INPUT.length()).repeat(i % 3 + 1));
+		}
+
+		TokenBuffer tokens = lexer.tokenizeAll(inputs);
+
+		assertThat(tokens.numberOfInputs()).isEqualTo(inputs.size());
+		for(int input = 0; input < inputs.size(); ++input) {
+			List<String> batch = new ArrayList<>();
+			for(int i = tokens.firstTokenOf(input); i < tokens.endOfTokensOf(input); ++i) {
+				batch.add(String.format("%s(%s)@%d", tokens.type(i), inputs.get(input).substring(tokens.start(i), tokens.end(i)), tokens.start(i)));
+			}
+			assertThat(batch).isEqualTo(tokenize(lexer, inputs.get(input)));
+		}
+	}
+
+	@Test
+	void tokenizesFieldsOfOneText() {
+		Lexer lexer = Lexer.from(arithmetic());
+		String text = "x1 = 42foo;+ 7";
+
+		TokenBuffer tokens = lexer.tokenizeAll(text, new int[] {0, 2, 5, 7, 7, 14});
+
+		List<String> fields = new ArrayList<>();
+		for(int field = 0; field < tokens.numberOfInputs(); ++field) {
+			StringBuilder description = new StringBuilder();
+			for(int i = tokens.firstTokenOf(field); i < tokens.endOfTokensOf(field); ++i) {
+				description.append(tokens.type(i)).append('@').append(tokens.start(i)).append(' ');
+			}
+			fields.add(description.toString().trim());
+		}
+		assertThat(fields).containsExactly(
+				"IDENTIFIER@0", "WHITESPACE@2 ASSIGN@3 WHITESPACE@4", "NUMBER@5", "",
+				"IDENTIFIER@7 SEMICOLON@10 PLUS@11 WHITESPACE@12 NUMBER@13"
+		);
+	}
+
+	@Test
+	void rejectsLexersThatRecoverFromErrors() {
+		Lexer lexer = Lexer.from(arithmetic(), new Lexer.Options().recoverFromErrors(Lexer.ErrorRecovery.ONE_CHARACTER));
+
+		assertThatThrownBy(() -> lexer.tokenizeAll(List.of(ARITHMETIC_INPUT)))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("recovering from errors");
+		assertThatThrownBy(() -> lexer.tokenizeAll(ARITHMETIC_INPUT, new int[] {0, ARITHMETIC_INPUT.length()}))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("recovering from errors");
+	}
+
+}
@@ -0,0 +1,46 @@
+package de.dhbw.mh.lextream.lexify;
+
+import java.util.function.LongSupplier;
+
+/**
+ * A minimal harness for the micro benchmarks of lexify.
+ *
+ * <p>Benchmarks are plain {@code main} classes in the test sources, so they are
+ * neither shipped nor executed by the test run. Start them from the IDE or via
+ * {@code java -cp ...}, preferably with a fixed heap and nothing else running.</p>
+ */
+final class BenchmarkRunner {
+
+	private static final int WARMUP_RUNS = 5;
+	private static final int MEASURED_RUNS = 10;
+
+	private static volatile long blackhole;
+
+	private BenchmarkRunner() {
+		// prevent instantiation
+	}
+
+	/**
+	 * Runs the body repeatedly and prints the best time per unit of work.
+	 *
+	 * @param name  the label of the measurement
+	 * @param units the units of work (e.g. characters) processed per run
+	 * @param body  the work to measure; its result is consumed to prevent dead code elimination
+	 * @return the best time per unit in nanoseconds
+	 */
+	static double measure(String name, long units, LongSupplier body) {
+		for(int i = 0; i < WARMUP_RUNS; ++i) {
+			blackhole += body.getAsLong();
+		}
+		long best = Long.MAX_VALUE;
+		for(int i = 0; i < MEASURED_RUNS; ++i) {
+			long start = System.nanoTime();
+			blackhole += body.getAsLong();
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		double perUnit = (double) best / units;
+		System.out.printf("%-40s %10.3f ns/unit%n", name, perUnit);
+		return perUnit;
+	}
+
+}
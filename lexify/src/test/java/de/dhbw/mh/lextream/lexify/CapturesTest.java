@@ -0,0 +1,147 @@
+package de.dhbw.mh.lextream.lexify;
+
+import static de.dhbw.mh.lextream.lexify.TestAutomata.oneOrMore;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.specification;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.trickling;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import de.dhbw.mh.lextream.lexport.LexerSpecification;
+
+class CapturesTest {
+
+	private static LexerSpecification pairsAndStrings() {
+		return specification(
+				oneOrMore('a', 'z'), "WORD",
+				oneOrMore(' ', ' '), "BLANK",
+				TestAutomata.automaton()
+						.on("q0", 'a', 'z', "q1")
+						.on("q1", 'a', 'z', "q1")
+						.on("q1", '=', "q2")
+						.on("q2", '0', '9', "q3")
+						.on("q3", '0', '9', "q3")
+						.accept("q3")
+						.startCapture("q0", 'a', 'z', "key")
+						.endCapture("q0", 'a', 'z', "key")
+						.endCapture("q1", 'a', 'z', "key")
+						.startCapture("q2", '0', '9', "value")
+						.endCapture("q2", '0', '9', "value")
+						.endCapture("q3", '0', '9', "value")
+						.build(), "PAIR",
+				TestAutomata.automaton()
+						.on("q0", '"', "q1")
+						.on("q1", 'a', 'z', "q2")
+						.on("q2", 'a', 'z', "q2")
+						.on("q1", '"', "q3")
+						.on("q2", '"', "q3")
+						.accept("q3")
+						.startCapture("q1", 'a', 'z', "content")
+						.endCapture("q1", 'a', 'z', "content")
+						.endCapture("q2", 'a', 'z', "content")
+						.build(), "STRING"
+		);
+	}
+
+	@Test
+	void reportsCapturedPartsOfMatches() {
+		String input = "ab=12 abc \"xy\" \"\" k=7";
+
+		for(boolean fused : new boolean[] {true, false}) {
+			for(boolean linearTime : new boolean[] {true, false}) {
+				// the tags have to survive the JSON of the specification
+				LexerSpecification spec = LexerSpecification.fromJson(pairsAndStrings().toJson());
+				Lexer lexer = Lexer.from(spec, new Lexer.Options().fuseRules(fused).linearTime(linearTime));
+				int key = lexer.captureId("PAIR", "key");
+				int value = lexer.captureId("PAIR", "value");
+				int content = lexer.captureId("STRING", "content");
+
+				List<String> parts = new ArrayList<>();
+				Lexer.Instance instance = lexer.newInstance(trickling(input));
+				while(instance.next()) {
+					for(int group : new int[] {key, value, content}) {
+						if(instance.captureStart(group) >= 0) {
+							parts.add(input.substring(instance.captureStart(group), instance.captureEnd(group)));
+						}
+					}
+				}
+
+				assertThat(parts).containsExactly("ab", "12", "xy", "k", "7");
+			}
+		}
+	}
+
+	@Test
+	void pairsCapturesOfTheSameIterationOfALoop() {
+		// (x(bc)?|xb)+, whose group starts on every 'b' after an 'x' but only ends on a 'c'
+		LexerSpecification spec = specification(
+				TestAutomata.automaton()
+						.on("q0", 'x', "q1")
+						.on("q1", 'x', "q1")
+						.on("q1", 'b', "q2")
+						.on("q2", 'x', "q1")
+						.on("q2", 'c', "q3")
+						.on("q3", 'x', "q1")
+						.accept("q1", "q2", "q3")
+						.startCapture("q1", 'b', 'b', "group")
+						.endCapture("q2", 'c', 'c', "group")
+						.build(), "LIST"
+		);
+
+		for(boolean fused : new boolean[] {true, false}) {
+			Lexer lexer = Lexer.from(spec, new Lexer.Options().fuseRules(fused));
+			int group = lexer.captureId("LIST", "group");
+			List<String> captured = new ArrayList<>();
+			for(String input : new String[] {"xbcxb", "xbxbc", "xbxb", "xbcxbcx"}) {
+				Lexer.Instance instance = lexer.newInstance(input);
+				instance.next();
+				captured.add(instance.captureStart(group) + "-" + instance.captureEnd(group));
+			}
+
+			assertThat(captured).containsExactly("1-3", "3-5", "-1--1", "4-6");
+		}
+	}
+
+	@Test
+	void capturesWholeSurrogatePairs() {
+		LexerSpecification spec = specification(
+				TestAutomata.automaton()
+						.on("q0", '<', "q1")
+						.on("q1", 0x1F600, 0x1F64F, "q2")
+						.on("q2", 0x1F600, 0x1F64F, "q2")
+						.on("q2", '>', "q3")
+						.accept("q3")
+						.startCapture("q1", 0x1F600, 0x1F64F, "emoji")
+						.endCapture("q1", 0x1F600, 0x1F64F, "emoji")
+						.endCapture("q2", 0x1F600, 0x1F64F, "emoji")
+						.build(), "TAG"
+		);
+		String input = "<\uD83D\uDE00\uD83D\uDE4F>";
+
+		for(boolean fused : new boolean[] {true, false}) {
+			for(boolean linearTime : new boolean[] {true, false}) {
+				Lexer lexer = Lexer.from(spec, new Lexer.Options().fuseRules(fused).linearTime(linearTime));
+				int emoji = lexer.captureId("TAG", "emoji");
+				Lexer.Instance instance = lexer.newInstance(trickling(input));
+				instance.next();
+
+				assertThat(input.substring(instance.captureStart(emoji), instance.captureEnd(emoji)))
+						.isEqualTo("\uD83D\uDE00\uD83D\uDE4F");
+			}
+		}
+	}
+
+	@Test
+	void rejectsUnknownCaptureGroups() {
+		Lexer lexer = Lexer.from(pairsAndStrings());
+
+		assertThat(lexer.captureId("STRING", "content")).isNotEqualTo(lexer.captureId("PAIR", "key"));
+		assertThatThrownBy(() -> lexer.captureId("WORD", "key")).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> lexer.captureId("PAIR", "content")).isInstanceOf(IllegalArgumentException.class);
+	}
+
+}
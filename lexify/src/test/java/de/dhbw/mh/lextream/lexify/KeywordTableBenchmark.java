@@ -0,0 +1,66 @@
+package de.dhbw.mh.lextream.lexify;
+
+import java.util.Random;
+
+import de.dhbw.mh.lextream.lexport.LexerSpecification;
+
+/**
+ * Compares matching the keywords of Java by rules of their own with looking
+ * them up in a keyword table once the identifier rule has matched.
+ */
+class KeywordTableBenchmark {
+
+	private static final int INPUT_LENGTH = 1 << 22;
+
+	private static final String[] KEYWORDS = {
+			"abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const",
+			"continue", "default", "do", "double", "else", "enum", "extends", "final", "finally", "float",
+			"for", "goto", "if", "implements", "import", "instanceof", "int", "interface", "long", "native",
+			"new", "package", "private", "protected", "public", "return", "short", "static", "strictfp", "super",
+			"switch", "synchronized", "this", "throw", "throws", "transient", "try", "void", "volatile", "while"
+	};
+
+	public static void main(String... args) {
+		Random random = new Random(42);
+		StringBuilder input = new StringBuilder();
+		while(input.length() < INPUT_LENGTH) {
+			input.append(random.nextBoolean() ? KEYWORDS[random.nextInt(KEYWORDS.length)] : "value".substring(random.nextInt(4)));
+			input.append(' ');
+		}
+		String text = input.toString();
+
+		for(boolean extract : new boolean[] {false, true}) {
+			String label = extract ? "keyword table" : "keyword rules";
+			BenchmarkRunner.measure(label + ", building", 1, () -> Lexer.from(javaKeywords(extract)).tokenTypes().size());
+			Lexer lexer = Lexer.from(javaKeywords(extract));
+			BenchmarkRunner.measure(label + ", scanning", text.length(), () -> {
+				Lexer.Instance instance = lexer.newInstance(text);
+				long types = 0;
+				while(instance.next()) {
+					types += instance.typeId();
+				}
+				return types;
+			});
+		}
+	}
+
+	private static LexerSpecification javaKeywords(boolean extract) {
+		LexerSpecification spec = TestAutomata.specification(
+				TestAutomata.automaton()
+						.on("q0", 'a', 'z', "q1")
+						.on("q1", 'a', 'z', "q1")
+						.on("q1", '0', '9', "q1")
+						.accept("q1")
+						.build(), "IDENTIFIER",
+				TestAutomata.oneOrMore(' ', ' '), "BLANK"
+		);
+		for(String keyword : KEYWORDS) {
+			spec.addRule(TestAutomata.literal(keyword), keyword.toUpperCase());
+		}
+		if(extract) {
+			spec.extractKeywords();
+		}
+		return spec;
+	}
+
+}
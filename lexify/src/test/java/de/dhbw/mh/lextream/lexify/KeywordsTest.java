@@ -0,0 +1,73 @@
+package de.dhbw.mh.lextream.lexify;
+
+import static de.dhbw.mh.lextream.lexify.TestAutomata.literal;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.oneOrMore;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.specification;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.tokenize;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.trickling;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import de.dhbw.mh.lextream.lexport.LexerSpecification;
+
+class KeywordsTest {
+
+	@Test
+	void looksUpKeywordsInsteadOfMatchingThem() {
+		LexerSpecification spec = specification(
+				oneOrMore('a', 'z'), "WORD",
+				oneOrMore(' ', ' '), "BLANK",
+				literal("if"), "IF",
+				literal("while"), "WHILE",
+				literal("!="), "UNEQUAL"
+		);
+		String input = "if iffy while whil != i";
+		List<String> expected = List.of("IF(if)@0", "BLANK( )@2", "WORD(iffy)@3", "BLANK( )@7", "WHILE(while)@8",
+				"BLANK( )@13", "WORD(whil)@14", "BLANK( )@18", "UNEQUAL(!=)@19", "BLANK( )@21", "WORD(i)@22");
+
+		// only the literals that WORD matches as well become keywords, which then win against WORD
+		assertThat(spec.extractKeywords()).isEqualTo(2);
+		assertThat(spec.getRules()).hasSize(3);
+		spec = LexerSpecification.fromJson(spec.toJson());
+		assertThat(spec.getKeywords().getGeneralTypes()).containsExactly("WORD");
+
+		for(boolean fused : new boolean[] {true, false}) {
+			Lexer lexer = Lexer.from(spec, new Lexer.Options().fuseRules(fused));
+			assertThat(tokenize(lexer, input)).isEqualTo(expected);
+			assertThat(tokenize(lexer.newInstance(trickling(input)))).isEqualTo(expected);
+		}
+		Lexer lexer = Lexer.from(spec);
+		TokenBuffer batch = lexer.tokenizeAll(List.of(input));
+		TokenBuffer parallel = lexer.tokenizeParallel(input);
+		Lexer.Utf8Instance utf8 = lexer.newInstance(ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8)));
+		for(int i = 0; i < expected.size(); ++i) {
+			utf8.advance();
+			assertThat(expected.get(i)).startsWith(batch.type(i) + "(").startsWith(parallel.type(i) + "(")
+					.startsWith(utf8.getToken().type + "(");
+		}
+	}
+
+	@Test
+	void keepsKeywordsWithTheSameHashAsRules() {
+		// both literals have the same 32-bit FNV-1a hash
+		LexerSpecification spec = specification(
+				oneOrMore('a', 'z'), "WORD",
+				oneOrMore(' ', ' '), "BLANK",
+				literal("glbvs"), "GLBVS",
+				literal("yacxa"), "YACXA",
+				literal("if"), "IF"
+		);
+
+		assertThat(spec.extractKeywords()).isEqualTo(1);
+		assertThat(spec.getRules()).extracting(rule -> rule.tokenType).containsExactlyInAnyOrder("WORD", "BLANK", "GLBVS", "YACXA");
+		assertThat(spec.getKeywords().size()).isEqualTo(1);
+		assertThat(spec.getKeywords().keywordAt(0)).isEqualTo("if");
+		assertThat(tokenize(Lexer.from(spec), "if glb")).containsExactly("IF(if)@0", "BLANK( )@2", "WORD(glb)@3");
+	}
+
+}
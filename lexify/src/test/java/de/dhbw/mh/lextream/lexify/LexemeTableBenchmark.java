@@ -0,0 +1,54 @@
+package de.dhbw.mh.lextream.lexify;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import de.dhbw.mh.lextream.lexport.LexerSpecification;
+
+/**
+ * Compares collecting the tokens of an input with a fresh string per lexeme
+ * against interning the lexemes, for identifiers drawn from a small vocabulary.
+ */
+class LexemeTableBenchmark {
+
+	private static final int INPUT_LENGTH = 1 << 22;
+	private static final int VOCABULARY = 500;
+
+	public static void main(String... args) {
+		LexerSpecification spec = TestAutomata.specification(
+				TestAutomata.oneOrMore('a', 'z'), "IDENTIFIER",
+				TestAutomata.oneOrMore(' ', ' '), "BLANK"
+		);
+		Random random = new Random(42);
+		String[] vocabulary = new String[VOCABULARY];
+		for(int i = 0; i < vocabulary.length; ++i) {
+			StringBuilder word = new StringBuilder();
+			for(int length = 3 + random.nextInt(10); word.length() < length;) {
+				word.append((char) ('a' + random.nextInt(26)));
+			}
+			vocabulary[i] = word.toString();
+		}
+		StringBuilder input = new StringBuilder();
+		while(input.length() < INPUT_LENGTH) {
+			// a skewed choice, so that some identifiers are much more frequent than others
+			input.append(vocabulary[(int) (vocabulary.length * Math.pow(random.nextDouble(), 3))]).append(' ');
+		}
+		String text = input.toString();
+
+		for(int interned : new int[] {0, 256, 1024}) {
+			Lexer lexer = Lexer.from(spec, new Lexer.Options().internLexemes(interned));
+			BenchmarkRunner.measure("interned lexemes: " + interned, text.length(), () -> {
+				// the tokens are kept, like a parser keeps the names in its syntax tree
+				List<Lexer.Token> tokens = new ArrayList<>();
+				Lexer.Instance instance = lexer.newInstance(text);
+				while(!instance.completed()) {
+					instance.advance();
+					tokens.add(instance.getToken());
+				}
+				return tokens.size();
+			});
+		}
+	}
+
+}
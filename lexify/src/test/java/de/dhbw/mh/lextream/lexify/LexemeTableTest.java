@@ -0,0 +1,45 @@
+package de.dhbw.mh.lextream.lexify;
+
+import static de.dhbw.mh.lextream.lexify.TestAutomata.arithmetic;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.tokenize;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.trickling;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class LexemeTableTest {
+
+	@Test
+	void internsRepeatedLexemes() {
+		Lexer lexer = Lexer.from(arithmetic(), new Lexer.Options().internLexemes(16));
+		String input = "foo = foo + bar; bar = foo;";
+
+		List<Lexer.Token> tokens = new ArrayList<>();
+		Lexer.Instance instance = lexer.newInstance(trickling(input));
+		while(!instance.completed()) {
+			instance.advance();
+			tokens.add(instance.getToken());
+		}
+
+		assertThat(tokenize(lexer, input)).isEqualTo(tokenize(Lexer.from(arithmetic()), input));
+		assertThat(tokens.get(4).lexeme).isEqualTo("foo").isSameAs(tokens.get(0).lexeme);
+		assertThat(tokens.get(11).lexeme).isEqualTo("bar").isSameAs(tokens.get(8).lexeme);
+	}
+
+	@Test
+	void evictsRarelyUsedLexemesFromAFullTable() {
+		LexemeTable table = new LexemeTable(4);
+		char[] chars = "abcdefghijklmnop".toCharArray();
+		String frequent = table.intern(chars, 0, 1);
+
+		for(int i = 1; i < chars.length; ++i) {
+			assertThat(table.intern(chars, i, i + 1)).isEqualTo(String.valueOf(chars[i]));
+			assertThat(table.intern(chars, 0, 1)).isSameAs(frequent);
+		}
+		assertThat(table.capacity()).isEqualTo(4);
+	}
+
+}
@@ -0,0 +1,406 @@
+package de.dhbw.mh.lextream.lexify;
+
+import static de.dhbw.mh.lextream.lexify.TestAutomata.ARITHMETIC_INPUT;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.MULTILINGUAL_INPUT;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.arithmetic;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.blockComment;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.describe;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.literal;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.multilingual;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.oneOrMore;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.specification;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.tokenize;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.trickling;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import com.sun.management.ThreadMXBean;
+
+import de.dhbw.mh.lextream.lexport.LexerSpecification;
+
+class LexerTest {
+
+	@Test
+	void fusesRulesByDefault() {
+		Lexer lexer = Lexer.from(arithmetic());
+
+		assertThat(lexer.isFused()).isTrue();
+	}
+
+	@Test
+	void fallsBackToPerRuleScanningIfProductIsTooLarge() {
+		Lexer lexer = Lexer.from(arithmetic(), new Lexer.Options().maxFusedStates(2));
+
+		assertThat(lexer.isFused()).isFalse();
+	}
+
+	@Test
+	void tokenizesLongestMatches() {
+		Lexer lexer = Lexer.from(arithmetic());
+
+		assertThat(tokenize(lexer, ARITHMETIC_INPUT)).containsExactly(
+				"IDENTIFIER(x1)@0", "WHITESPACE( )@2", "ASSIGN(=)@3", "WHITESPACE( )@4",
+				"NUMBER(42)@5", "WHITESPACE( )@7", "PLUS(+)@8", "WHITESPACE( )@9",
+				"IDENTIFIER(foo)@10", "SEMICOLON(;)@13"
+		);
+	}
+
+	@Test
+	void fusedAndPerRuleScanningAgree() {
+		LexerSpecification spec = specification(
+				literal("if"), "IF",
+				literal("iff"), "IFF",
+				oneOrMore('a', 'z'), "WORD",
+				oneOrMore(' ', ' '), "BLANK"
+		);
+		String input = "if iff iffy i f";
+
+		Lexer fused = Lexer.from(spec);
+		Lexer perRule = Lexer.from(spec, new Lexer.Options().fuseRules(false));
+
+		assertThat(fused.isFused()).isTrue();
+		assertThat(perRule.isFused()).isFalse();
+		assertThat(tokenize(fused, input)).isEqualTo(tokenize(perRule, input));
+	}
+
+	@Test
+	void classifiesOverlappingSymbolsOfDifferentRules() {
+		LexerSpecification spec = specification(
+				oneOrMore('a', 'z'), "WORD",
+				TestAutomata.automaton()
+						.on("q0", '#', "q1")
+						.on("q1", '0', '9', "q2")
+						.on("q1", 'a', 'f', "q2")
+						.on("q2", '0', '9', "q2")
+						.on("q2", 'a', 'f', "q2")
+						.accept("q2")
+						.build(), "COLOR",
+				oneOrMore(' ', ' '), "BLANK"
+		);
+		Lexer lexer = Lexer.from(spec, new Lexer.Options().fuseRules(false));
+
+		assertThat(tokenize(lexer, "face #c0ffee fig")).containsExactly(
+				"WORD(face)@0", "BLANK( )@4", "COLOR(#c0ffee)@5", "BLANK( )@12", "WORD(fig)@13"
+		);
+	}
+
+	@Test
+	void linearTimeModeProducesSameTokens() {
+		LexerSpecification spec = specification(
+				TestAutomata.automaton()
+						.on("q0", 'a', "q0")
+						.on("q0", 'b', "q1")
+						.accept("q1")
+						.build(), "A_STAR_B",
+				literal("a"), "A",
+				literal(" "), "BLANK"
+		);
+		String input = "aaaaaaaa aab aaaaab a b";
+
+		Lexer lexer = Lexer.from(spec);
+		Lexer linear = Lexer.from(spec, new Lexer.Options().linearTime(true));
+
+		assertThat(tokenize(linear, input)).isEqualTo(tokenize(lexer, input));
+	}
+
+	@Test
+	void readsSurrogatePairsAsOneCodePoint() {
+		String input = MULTILINGUAL_INPUT;
+		List<String> expected = List.of(
+				"WORD(gr\u00FC\u00DFe)@0", "BLANK( )@5", "EURO(\u20AC)@6", "BLANK( )@7", "WORD(stra\u00DFe)@8",
+				"BLANK( )@14", "EMOJI(\uD83D\uDE00\uD83D\uDE4F)@15", "BLANK( )@19", "WORD(f\u00FCr)@20", "EURO(\u20AC)@23"
+		);
+
+		for(boolean fused : new boolean[] {true, false}) {
+			for(boolean linearTime : new boolean[] {true, false}) {
+				Lexer lexer = Lexer.from(multilingual(), new Lexer.Options().fuseRules(fused).linearTime(linearTime)
+						.recoverFromErrors(Lexer.ErrorRecovery.ONE_CHARACTER));
+
+				assertThat(tokenize(lexer, input)).isEqualTo(expected);
+				// the reader splits the first pair of emoji
+				assertThat(tokenize(lexer.newInstance(trickling(input)))).isEqualTo(expected);
+				// a high surrogate without its low surrogate is classified on its own
+				assertThat(tokenize(lexer.newInstance(trickling("a\uD83D")))).containsExactly("WORD(a)@0", "ERROR(\uD83D)@1");
+			}
+		}
+		TokenBuffer tokens = Lexer.from(multilingual()).tokenizeAll(List.of(input));
+		assertThat(tokens.size()).isEqualTo(expected.size());
+		assertThat(tokens.type(6) + "@" + tokens.start(6) + "-" + tokens.end(6)).isEqualTo("EMOJI@15-19");
+	}
+
+	@Test
+	void ignoresLinearTimeModeForRulesThatAreNotFused() {
+		LexerSpecification spec = specification(
+				TestAutomata.automaton()
+						.on("q0", 'a', "q0")
+						.on("q0", 'b', "q1")
+						.accept("q1")
+						.build(), "A_STAR_B",
+				literal("a"), "A"
+		);
+		String input = "a".repeat(40);
+		List<String> expected = tokenize(Lexer.from(spec), input);
+
+		for(Lexer.Options options : List.of(
+				new Lexer.Options().linearTime(true).fuseRules(false),
+				new Lexer.Options().linearTime(true).maxFusedStates(1))) {
+			Lexer linear = Lexer.from(spec, options);
+
+			assertThat(linear.isFused()).isFalse();
+			assertThat(tokenize(linear, input)).isEqualTo(expected);
+		}
+	}
+
+	@Test
+	void discardsMatchesOfSkipRules() {
+		LexerSpecification spec = specification(
+				oneOrMore('a', 'z'), "WORD",
+				literal("/"), "SLASH"
+		);
+		spec.addRule(blockComment(), "COMMENT", true);
+		spec.addRule(oneOrMore(' ', ' '), "BLANK", true);
+		String input = "  a /* x */ b/c  /**/";
+		List<String> expected = List.of("WORD(a)@2", "WORD(b)@12", "SLASH(/)@13", "WORD(c)@14");
+
+		for(boolean fused : new boolean[] {true, false}) {
+			Lexer lexer = Lexer.from(spec, new Lexer.Options().fuseRules(fused));
+
+			assertThat(tokenize(lexer, input)).isEqualTo(expected);
+			assertThat(tokenize(lexer.newInstance(trickling(input)))).isEqualTo(expected);
+			List<String> pushed = new ArrayList<>();
+			Lexer.PushInstance push = lexer.newPushInstance(StandardCharsets.UTF_8, token -> pushed.add(describe(token)));
+			push.feed(ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8)));
+			push.endOfInput();
+			assertThat(pushed).isEqualTo(expected);
+		}
+
+		Lexer lexer = Lexer.from(spec);
+		List<String> cursor = new ArrayList<>();
+		Lexer.Instance instance = lexer.newInstance(input);
+		while(instance.next()) {
+			cursor.add(lexer.tokenTypes().get(instance.typeId()) + "@" + instance.start());
+		}
+		assertThat(cursor).containsExactly("WORD@2", "WORD@12", "SLASH@13", "WORD@14");
+		assertThat(lexer.tokenizeAll(List.of(input)).size()).isEqualTo(expected.size());
+		assertThat(lexer.tokenizeParallel(input).size()).isEqualTo(expected.size());
+		Lexer.Utf8Instance utf8 = lexer.newInstance(ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8)));
+		int significant = 0;
+		while(!utf8.completed()) {
+			utf8.advance();
+			assertThat(utf8.getToken().type).isIn("WORD", "SLASH");
+			++significant;
+		}
+		assertThat(significant).isEqualTo(expected.size());
+	}
+
+	@Test
+	void reportsUnexpectedSequencesAsErrorTokens() {
+		String input = "x1 = #42 $$ + foo\uD83D\uDE00;";
+		List<String> singleCharacters = List.of("ERROR(#)@5", "ERROR($)@9", "ERROR($)@10", "ERROR(\uD83D\uDE00)@17");
+		List<String> upToNextStart = List.of("ERROR(#)@5", "ERROR($$)@9", "ERROR(\uD83D\uDE00)@17");
+
+		for(boolean fused : new boolean[] {true, false}) {
+			for(Lexer.ErrorRecovery recovery : new Lexer.ErrorRecovery[] {Lexer.ErrorRecovery.ONE_CHARACTER, Lexer.ErrorRecovery.UP_TO_NEXT_START}) {
+				List<String> expected = (recovery == Lexer.ErrorRecovery.ONE_CHARACTER) ? singleCharacters : upToNextStart;
+				Lexer lexer = Lexer.from(arithmetic(), new Lexer.Options().fuseRules(fused).recoverFromErrors(recovery));
+
+				Lexer.Instance instance = lexer.newInstance(trickling(input));
+				List<String> tokens = tokenize(instance);
+				assertThat(tokens).filteredOn(token -> token.startsWith(Lexer.ERROR)).isEqualTo(expected);
+				assertThat(tokens).contains("NUMBER(42)@6", "IDENTIFIER(foo)@14", "SEMICOLON(;)@19");
+				assertThat(instance.numberOfErrors()).isEqualTo(expected.size());
+
+				List<String> pushed = new ArrayList<>();
+				Lexer.PushInstance push = lexer.newPushInstance(StandardCharsets.UTF_8, token -> pushed.add(describe(token)));
+				push.feed(ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8)));
+				push.endOfInput();
+				assertThat(pushed).isEqualTo(tokens);
+				assertThat(push.numberOfErrors()).isEqualTo(expected.size());
+			}
+		}
+	}
+
+	@Test
+	void streamsInputInSmallChunks() {
+		String input = ARITHMETIC_INPUT.repeat(50);
+
+		for(boolean fused : new boolean[] {true, false}) {
+			Lexer lexer = Lexer.from(arithmetic(), new Lexer.Options().fuseRules(fused).maxTokenLength(4));
+
+			assertThat(tokenize(lexer.newInstance(trickling(input))))
+					.isEqualTo(tokenize(lexer, input));
+		}
+	}
+
+	@Test
+	void rejectsStreamedTokensLongerThanTheLimit() {
+		Lexer lexer = Lexer.from(arithmetic(), new Lexer.Options().maxTokenLength(4));
+		Lexer.Instance instance = lexer.newInstance(trickling("x = abcdefgh;"));
+
+		assertThatThrownBy(() -> tokenize(instance))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("offset 4");
+	}
+
+	@Test
+	void pushesTokensOfInputFedInChunks() {
+		LexerSpecification spec = multilingual();
+		String input = MULTILINGUAL_INPUT;
+		byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+
+		for(boolean fused : new boolean[] {true, false}) {
+			Lexer lexer = Lexer.from(spec, new Lexer.Options().fuseRules(fused));
+			for(int chunkSize = 1; chunkSize <= 4; ++chunkSize) {
+				List<String> tokens = new ArrayList<>();
+				Lexer.PushInstance instance = lexer.newPushInstance(StandardCharsets.UTF_8, token -> tokens.add(describe(token)));
+				for(int offset = 0; offset < bytes.length; offset += chunkSize) {
+					instance.feed(ByteBuffer.wrap(bytes, offset, Math.min(chunkSize, bytes.length - offset)));
+				}
+				instance.endOfInput();
+
+				assertThat(tokens).isEqualTo(tokenize(lexer, input));
+			}
+		}
+	}
+
+	@Test
+	void pushesTokensOnlyOnceTheyCannotGrow() {
+		Lexer lexer = Lexer.from(arithmetic());
+		List<Lexer.Token> tokens = new ArrayList<>();
+		Lexer.PushInstance instance = lexer.newPushInstance(StandardCharsets.UTF_8, tokens::add);
+
+		instance.feed(ByteBuffer.wrap("foo 4".getBytes(StandardCharsets.UTF_8)));
+		assertThat(tokens).extracting(token -> token.lexeme).containsExactly("foo", " ");
+
+		instance.feed(ByteBuffer.wrap("2".getBytes(StandardCharsets.UTF_8)));
+		instance.endOfInput();
+		assertThat(tokens).extracting(token -> token.lexeme).containsExactly("foo", " ", "42");
+	}
+
+	@Test
+	void pushesChunksLargerThanTheBuffer() {
+		Lexer lexer = Lexer.from(arithmetic(), new Lexer.Options().maxTokenLength(16));
+		String input = ARITHMETIC_INPUT.repeat(50);
+		List<String> tokens = new ArrayList<>();
+		Lexer.PushInstance instance = lexer.newPushInstance(StandardCharsets.UTF_8, token -> tokens.add(describe(token)));
+
+		instance.feed(ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8)));
+		instance.endOfInput();
+
+		assertThat(tokens).isEqualTo(tokenize(lexer, input));
+	}
+
+	@Test
+	void cursorReportsTheSameTokens() {
+		Lexer lexer = Lexer.from(arithmetic());
+		Lexer.Instance instance = lexer.newInstance(ARITHMETIC_INPUT);
+
+		List<String> tokens = new ArrayList<>();
+		while(instance.next()) {
+			tokens.add(String.format("%s(%s)@%d", lexer.tokenTypes().get(instance.typeId()), instance.lexeme(), instance.start()));
+		}
+
+		assertThat(tokens).isEqualTo(tokenize(lexer, ARITHMETIC_INPUT));
+	}
+
+	@Test
+	void cursorAllocatesNothingPerToken() {
+		ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+		Lexer lexer = Lexer.from(arithmetic());
+		String input = ARITHMETIC_INPUT.repeat(10_000);
+
+		for(int i = 0; i < 20; ++i) {
+			consumeWithCursor(lexer.newInstance(input));
+		}
+		Lexer.Instance instance = lexer.newInstance(input);
+		long before = threads.getCurrentThreadAllocatedBytes();
+		long checksum = consumeWithCursor(instance);
+		long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+		assertThat(checksum).isPositive();
+		// 90,000 tokens; a single object per token would take at least 16 bytes each
+		assertThat(allocated).isLessThan(1024);
+	}
+
+	private static long consumeWithCursor(Lexer.Instance instance) {
+		long checksum = 0;
+		while(instance.next()) {
+			CharSequence lexeme = instance.lexeme();
+			checksum += instance.typeId() + instance.end() - instance.start() + lexeme.charAt(lexeme.length() - 1);
+		}
+		return checksum;
+	}
+
+	@Test
+	void peeksAheadWithoutConsumingTokens() {
+		Lexer lexer = Lexer.from(arithmetic(), new Lexer.Options().maxLookahead(3));
+		Lexer.Instance instance = lexer.newInstance(ARITHMETIC_INPUT);
+
+		assertThat(describe(instance.peekToken(3))).isEqualTo("ASSIGN(=)@3");
+		assertThat(describe(instance.peekToken())).isEqualTo("IDENTIFIER(x1)@0");
+		assertThat(describe(instance.nextToken())).isEqualTo("IDENTIFIER(x1)@0");
+		assertThat(describe(instance.peekToken(2))).isEqualTo("ASSIGN(=)@3");
+		assertThatThrownBy(() -> instance.peekToken(4)).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void peeksAheadWhileStreaming() {
+		Lexer lexer = Lexer.from(arithmetic(), new Lexer.Options().maxTokenLength(16).maxLookahead(4));
+		String input = ARITHMETIC_INPUT.repeat(20);
+		Lexer.Instance instance = lexer.newInstance(trickling(input));
+
+		List<String> expected = tokenize(lexer, input);
+
+		for(int i = 0; i < expected.size(); ++i) {
+			int k = i % 4 + 1;
+			Lexer.Token ahead = instance.peekToken(k);
+			if(i + k <= expected.size()) {
+				assertThat(describe(ahead)).isEqualTo(expected.get(i + k - 1));
+			} else {
+				assertThat(ahead).isNull();
+			}
+			assertThat(describe(instance.nextToken())).isEqualTo(expected.get(i));
+		}
+		assertThat(instance.nextToken()).isNull();
+	}
+
+	@Test
+	void sharesOneLexerAcrossThreads() throws Exception {
+		Lexer fused = Lexer.from(arithmetic());
+		Lexer perRule = Lexer.from(arithmetic(), new Lexer.Options().fuseRules(false));
+		List<String> inputs = new ArrayList<>();
+		List<List<String>> expected = new ArrayList<>();
+		for(int i = 0; i < 64; ++i) {
+			String input = String.format("v%d = %d + w%d;", i, i * 37, i % 5).repeat(i + 1);
+			inputs.add(input);
+			expected.add(tokenize(Lexer.from(arithmetic()), input));
+		}
+
+		ExecutorService threads = Executors.newFixedThreadPool(32);
+		try {
+			List<Future<Boolean>> results = new ArrayList<>();
+			for(int task = 0; task < 2_000; ++task) {
+				Lexer lexer = (task % 2 == 0) ? fused : perRule;
+				int i = task % inputs.size();
+				results.add(threads.submit(() -> tokenize(lexer, inputs.get(i)).equals(expected.get(i))));
+			}
+			for(Future<Boolean> result : results) {
+				assertThat(result.get()).isTrue();
+			}
+		} finally {
+			threads.shutdownNow();
+		}
+	}
+
+}
@@ -0,0 +1,117 @@
+package de.dhbw.mh.lextream.lexify;
+
+import static de.dhbw.mh.redeggs.CodePointRange.range;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import de.dhbw.mh.redeggs.CodePointRange;
+
+/**
+ * Compares the cost per character of the flat transition table with the
+ * nested table and exception-driven error handling it replaced.
+ */
+class LexicalAutomatonBenchmark {
+
+	private static final int STATES = 64;
+	private static final int GROUPS = 16;
+	private static final int INPUT_LENGTH = 1 << 22;
+
+	public static void main(String... args) {
+		Random random = new Random(42);
+		SymbolStrategy symbols = asciiGroups();
+		int errorState = STATES - 1;
+		int[][] transitions = new int[STATES][symbols.numberOfGroups()];
+		int[] acceptedTokens = new int[STATES];
+		for(int state = 0; state < STATES; ++state) {
+			for(int symbol = 1; symbol < transitions[state].length; ++symbol) {
+				transitions[state][symbol] = (random.nextInt(8) == 0) ? errorState : random.nextInt(STATES - 1);
+			}
+			transitions[state][0] = errorState;
+			acceptedTokens[state] = (state != errorState && random.nextBoolean()) ? 0 : LexicalAutomaton.NO_TOKEN;
+		}
+		Arrays.fill(transitions[errorState], errorState);
+
+		char[] input = new char[INPUT_LENGTH];
+		for(int i = 0; i < input.length; ++i) {
+			input[i] = (char) (' ' + random.nextInt(96));
+		}
+
+		LexicalAutomaton flat = new LexicalAutomaton(0, acceptedTokens, transitions, errorState, symbols);
+		NestedTable nested = new NestedTable(transitions, acceptedTokens, errorState, symbols);
+
+		BenchmarkRunner.measure("nested int[][] with exception", input.length, () -> nested.run(input));
+		BenchmarkRunner.measure("flat int[] with implicit sink", input.length, () -> runFlat(flat, symbols, input));
+	}
+
+	private static SymbolStrategy asciiGroups() {
+		Map<Integer, CodePointRange> groups = new HashMap<>();
+		int width = 96 / (GROUPS - 1);
+		for(int group = 1; group < GROUPS; ++group) {
+			int first = ' ' + (group - 1) * width;
+			groups.put(group, range(first, first + width - 1));
+		}
+		return SymbolStrategy.basedOn(groups);
+	}
+
+	/**
+	 * Walks the input like the lexer does, restarting after each error.
+	 */
+	private static long runFlat(LexicalAutomaton automaton, SymbolStrategy symbols, char[] input) {
+		long accepted = 0;
+		int state = automaton.initialState();
+		for(char c : input) {
+			state = automaton.step(state, symbols.containing(c));
+			if(state == LexicalAutomaton.ERROR_STATE) {
+				state = automaton.initialState();
+			} else if(automaton.accepts(state)) {
+				++accepted;
+			}
+		}
+		return accepted;
+	}
+
+
+	/**
+	 * The previous representation, kept here as baseline.
+	 */
+	private static class NestedTable {
+		private final int[][] transitions;
+		private final boolean[] acceptingStates;
+		private final int errorState;
+		private final SymbolStrategy symbols;
+
+		NestedTable(int[][] transitions, int[] acceptedTokens, int errorState, SymbolStrategy symbols) {
+			this.transitions = transitions;
+			this.acceptingStates = new boolean[acceptedTokens.length];
+			for(int state = 0; state < acceptedTokens.length; ++state) {
+				acceptingStates[state] = acceptedTokens[state] != LexicalAutomaton.NO_TOKEN;
+			}
+			this.errorState = errorState;
+			this.symbols = symbols;
+		}
+
+		long run(char[] input) {
+			long accepted = 0;
+			int state = 0;
+			for(char c : input) {
+				if(state != errorState) {
+					try {
+						state = transitions[state][symbols.containing(c)];
+					} catch(ArrayIndexOutOfBoundsException ex) {
+						state = errorState;
+					}
+				}
+				if(state == errorState) {
+					state = 0;
+				} else if(acceptingStates[state]) {
+					++accepted;
+				}
+			}
+			return accepted;
+		}
+	}
+
+}
@@ -0,0 +1,46 @@
+package de.dhbw.mh.lextream.lexify;
+
+import static de.dhbw.mh.lextream.lexify.TestAutomata.literal;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.oneOrMore;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.specification;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.trickling;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import de.dhbw.mh.lextream.lexport.LexerSpecification;
+
+class LineIndexTest {
+
+	@Test
+	void resolvesLinesAndColumnsOfTokens() {
+		LexerSpecification spec = specification(
+				oneOrMore('a', 'z'), "WORD",
+				oneOrMore(' ', ' '), "BLANK",
+				literal("\n"), "NEWLINE",
+				literal("\r\n"), "NEWLINE"
+		);
+		String input = "ab cd\nef\r\n\n  gh\n".repeat(20);
+		LineIndex expected = LineIndex.of(input);
+		// a small buffer, so that characters are discarded while scanning
+		Lexer lexer = Lexer.from(spec, new Lexer.Options().trackLines(true).maxTokenLength(8));
+
+		Lexer.Instance instance = lexer.newInstance(trickling(input));
+		List<String> positions = new ArrayList<>();
+		while(!instance.completed()) {
+			instance.advance();
+			int start = instance.getToken().startOffset;
+			assertThat(instance.lines().positionOf(start)).isEqualTo(expected.positionOf(start));
+			positions.add(expected.positionOf(start));
+		}
+
+		assertThat(positions).startsWith("1:1", "1:3", "1:4", "1:6", "2:1", "2:3", "3:1", "4:1", "4:3", "4:5", "5:1");
+		assertThat(instance.lines().numberOfLines()).isEqualTo(81);
+		assertThatThrownBy(() -> Lexer.from(spec).newInstance(input).lines()).isInstanceOf(IllegalStateException.class);
+	}
+
+}
@@ -0,0 +1,41 @@
+package de.dhbw.mh.lextream.lexify;
+
+import de.dhbw.mh.lextream.lexport.LexerSpecification;
+
+/**
+ * Measures the worst case of maximal munch: rules {@code a*b} and {@code a}
+ * on a long run of {@code a}. Every token rescans the remainder of the input,
+ * unless the lexer runs in linear-time mode.
+ */
+class MaximalMunchBenchmark {
+
+	public static void main(String... args) {
+		LexerSpecification spec = TestAutomata.specification(
+				TestAutomata.automaton()
+						.on("q0", 'a', "q0")
+						.on("q0", 'b', "q1")
+						.accept("q1")
+						.build(), "A_STAR_B",
+				TestAutomata.literal("a"), "A"
+		);
+		Lexer quadratic = Lexer.from(spec);
+		Lexer linear = Lexer.from(spec, new Lexer.Options().linearTime(true));
+
+		for(int length = 1 << 10; length <= 1 << 14; length <<= 1) {
+			String input = "a".repeat(length);
+			BenchmarkRunner.measure("default, n=" + length, length, () -> count(quadratic, input));
+			BenchmarkRunner.measure("linear time, n=" + length, length, () -> count(linear, input));
+		}
+	}
+
+	private static long count(Lexer lexer, String input) {
+		long tokens = 0;
+		Lexer.Instance instance = lexer.newInstance(input);
+		while(!instance.completed()) {
+			instance.advance();
+			++tokens;
+		}
+		return tokens;
+	}
+
+}
@@ -0,0 +1,43 @@
+package de.dhbw.mh.lextream.lexify;
+
+import java.util.concurrent.ForkJoinPool;
+
+import de.dhbw.mh.lextream.lexport.LexerSpecification;
+
+/**
+ * Measures how parallel tokenization scales with the number of threads,
+ * compared to a sequential instance collecting the same tokens.
+ */
+class ParallelTokenizerBenchmark {
+
+	public static void main(String... args) {
+		LexerSpecification spec = TestAutomata.specification(
+				TestAutomata.oneOrMore('a', 'z'), "IDENTIFIER",
+				TestAutomata.oneOrMore('0', '9'), "NUMBER",
+				TestAutomata.oneOrMore(' ', ' '), "WHITESPACE",
+				TestAutomata.literal("\n"), "NEWLINE",
+				TestAutomata.literal("+"), "PLUS",
+				TestAutomata.literal(";"), "SEMICOLON"
+		);
+		Lexer lexer = Lexer.from(spec);
+		String input = "foo + 42;\nbar + baz;\n".repeat(1 << 20);
+
+		BenchmarkRunner.measure("sequential", input.length(), () -> {
+			Lexer.Instance instance = lexer.newInstance(input);
+			TokenBuffer tokens = new TokenBuffer(lexer.tokenTypes());
+			while(instance.next()) {
+				tokens.add(instance.typeId(), instance.start(), instance.end());
+			}
+			return tokens.size();
+		});
+		int processors = Runtime.getRuntime().availableProcessors();
+		for(int threads = 1; threads <= Math.max(processors, 8); threads *= 2) {
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			BenchmarkRunner.measure("parallel, " + threads + " threads", input.length(),
+					() -> lexer.tokenizeParallel(input, pool).size());
+			pool.shutdown();
+		}
+		System.out.printf("(%d processors available)%n", processors);
+	}
+
+}
@@ -0,0 +1,78 @@
+package de.dhbw.mh.lextream.lexify;
+
+import static de.dhbw.mh.lextream.lexify.TestAutomata.ARITHMETIC_INPUT;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.arithmetic;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.literal;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.oneOrMore;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.specification;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.tokenize;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import de.dhbw.mh.lextream.lexport.LexerSpecification;
+
+class ParallelTokenizerTest {
+
+	@Test
+	void tokenizesInParallelLikeSequentially() {
+		LexerSpecification spec = specification(
+				oneOrMore('a', 'z'), "WORD",
+				oneOrMore(' ', ' '), "BLANK",
+				literal(";"), "SEMICOLON",
+				TestAutomata.automaton()
+						.on("q0", '"', "q1")
+						.on("q1", 'a', 'z', "q1")
+						.on("q1", ' ', "q1")
+						.on("q1", ';', "q1")
+						.on("q1", 0x1F600, 0x1F64F, "q1")
+						.on("q1", '"', "q2")
+						.accept("q2")
+						.build(), "STRING"
+		);
+		Lexer lexer = Lexer.from(spec);
+		StringBuilder builder = new StringBuilder();
+		for(int i = 0; builder.length() < 1 << 20; ++i) {
+			builder.append((i % 7 == 0) ? "\"quoted words; inside \uD83D\uDE00\" " : "plain words; ");
+		}
+		String input = builder.toString();
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			TokenBuffer tokens = lexer.tokenizeParallel(input, pool);
+
+			List<String> parallel = new ArrayList<>();
+			for(int i = 0; i < tokens.size(); ++i) {
+				parallel.add(String.format("%s(%s)@%d", tokens.type(i), input.substring(tokens.start(i), tokens.end(i)), tokens.start(i)));
+			}
+			assertThat(parallel).isEqualTo(tokenize(lexer, input));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	void rejectsUnexpectedSequencesInParallel() {
+		Lexer lexer = Lexer.from(arithmetic());
+		String input = ARITHMETIC_INPUT.repeat(20_000) + "#" + ARITHMETIC_INPUT.repeat(20_000);
+
+		assertThatThrownBy(() -> lexer.tokenizeParallel(input))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("'#'");
+	}
+
+	@Test
+	void rejectsLexersThatRecoverFromErrors() {
+		Lexer lexer = Lexer.from(arithmetic(), new Lexer.Options().recoverFromErrors(Lexer.ErrorRecovery.ONE_CHARACTER));
+
+		assertThatThrownBy(() -> lexer.tokenizeParallel(ARITHMETIC_INPUT))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("recovering from errors");
+	}
+
+}
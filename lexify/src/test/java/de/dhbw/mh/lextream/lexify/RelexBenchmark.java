@@ -0,0 +1,34 @@
+package de.dhbw.mh.lextream.lexify;
+
+import java.util.List;
+
+import de.dhbw.mh.lextream.lexport.LexerSpecification;
+
+/**
+ * Compares tokenizing a text of 100k lines from scratch after typing a
+ * character into it against relexing the tokens around the edit.
+ */
+class RelexBenchmark {
+
+	private static final int LINES = 100_000;
+
+	public static void main(String... args) {
+		LexerSpecification spec = TestAutomata.specification(
+				TestAutomata.oneOrMore('a', 'z'), "IDENTIFIER",
+				TestAutomata.oneOrMore('0', '9'), "NUMBER",
+				TestAutomata.literal("="), "ASSIGN",
+				TestAutomata.literal(";"), "SEMICOLON"
+		);
+		spec.addRule(TestAutomata.oneOrMore(' ', ' '), "BLANK", true);
+		spec.addRule(TestAutomata.literal("\n"), "NEWLINE", true);
+		Lexer lexer = Lexer.from(spec);
+		String before = "value = 42;\n".repeat(LINES);
+		int offset = before.length() / 2 + 3;
+		String after = before.substring(0, offset) + "x" + before.substring(offset);
+		TokenBuffer tokens = lexer.tokenizeAll(List.of(before));
+
+		BenchmarkRunner.measure("from scratch, per edit", 1, () -> lexer.tokenizeAll(List.of(after)).size());
+		BenchmarkRunner.measure("relexed, per edit", 1, () -> lexer.relex(tokens, after, offset, 0, 1).size());
+	}
+
+}
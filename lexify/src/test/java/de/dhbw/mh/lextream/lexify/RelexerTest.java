@@ -0,0 +1,77 @@
+package de.dhbw.mh.lextream.lexify;
+
+import static de.dhbw.mh.lextream.lexify.TestAutomata.ARITHMETIC_INPUT;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.arithmetic;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.blockComment;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.literal;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.oneOrMore;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.specification;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import de.dhbw.mh.lextream.lexport.LexerSpecification;
+
+class RelexerTest {
+
+	@Test
+	void relexesEditsLikeTokenizingFromScratch() {
+		LexerSpecification spec = specification(
+				oneOrMore('a', 'z'), "WORD",
+				oneOrMore('0', '9'), "NUMBER",
+				literal(";"), "SEMICOLON",
+				literal("/"), "SLASH"
+		);
+		spec.addRule(blockComment(), "COMMENT", true);
+		spec.addRule(oneOrMore(' ', ' '), "BLANK", true);
+		Lexer lexer = Lexer.from(spec);
+		String[] insertions = {"", "x", "7", " ", ";", "/*", "*/", "ab 12", "; q"};
+		Random random = new Random(7);
+		StringBuilder text = new StringBuilder("let x 42; /* note */ y; 7 z;".repeat(30));
+		TokenBuffer tokens = lexer.tokenizeAll(List.of(text));
+
+		for(int edit = 0; edit < 300; ++edit) {
+			int offset = random.nextInt(text.length() + 1);
+			int removed = Math.min(random.nextInt(4), text.length() - offset);
+			String inserted = insertions[random.nextInt(insertions.length)];
+			String before = text.toString();
+			text.replace(offset, offset + removed, inserted);
+			TokenBuffer fromScratch;
+			try {
+				fromScratch = lexer.tokenizeAll(List.of(text));
+			} catch(IllegalStateException e) {
+				// e.g. a stray '*', which would make the text invalid
+				text.replace(0, text.length(), before);
+				continue;
+			}
+
+			tokens = lexer.relex(tokens, text, offset, removed, inserted.length());
+
+			List<String> relexed = new ArrayList<>();
+			List<String> expected = new ArrayList<>();
+			for(int i = 0; i < tokens.size(); ++i) {
+				relexed.add(tokens.type(i) + "@" + tokens.start(i) + "-" + tokens.end(i));
+			}
+			for(int i = 0; i < fromScratch.size(); ++i) {
+				expected.add(fromScratch.type(i) + "@" + fromScratch.start(i) + "-" + fromScratch.end(i));
+			}
+			assertThat(relexed).isEqualTo(expected);
+		}
+	}
+
+	@Test
+	void rejectsLexersThatRecoverFromErrors() {
+		Lexer lexer = Lexer.from(arithmetic(), new Lexer.Options().recoverFromErrors(Lexer.ErrorRecovery.ONE_CHARACTER));
+		TokenBuffer tokens = Lexer.from(arithmetic()).tokenizeAll(List.of(ARITHMETIC_INPUT));
+
+		assertThatThrownBy(() -> lexer.relex(tokens, ARITHMETIC_INPUT + " ", ARITHMETIC_INPUT.length(), 0, 1))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("recovering from errors");
+	}
+
+}
@@ -0,0 +1,54 @@
+package de.dhbw.mh.lextream.lexify;
+
+import de.dhbw.mh.lextream.lexport.LexerSpecification;
+
+/**
+ * Compares stepping the automaton over each character of long comments and
+ * whitespace runs with skipping the runs on which the state does not change.
+ */
+class SelfLoopBenchmark {
+
+	private static final int INPUT_LENGTH = 1 << 22;
+
+	public static void main(String... args) {
+		LexerSpecification spec = TestAutomata.specification(
+				TestAutomata.automaton()
+						.on("q0", '/', "q1")
+						.on("q1", '*', "q2")
+						.on("q2", 0, '*' - 1, "q2")
+						.on("q2", '*' + 1, Character.MAX_VALUE, "q2")
+						.on("q2", '*', "q3")
+						.on("q3", '*', "q3")
+						.on("q3", 0, '*' - 1, "q2")
+						.on("q3", '*' + 1, '/' - 1, "q2")
+						.on("q3", '/' + 1, Character.MAX_VALUE, "q2")
+						.on("q3", '/', "q4")
+						.accept("q4")
+						.build(), "COMMENT",
+				TestAutomata.oneOrMore('a', 'z'), "WORD",
+				TestAutomata.oneOrMore(' ', ' '), "BLANK"
+		);
+		Lexer skipping = Lexer.from(spec, new Lexer.Options().skipSelfLoops(true));
+		Lexer stepping = Lexer.from(spec);
+
+		for(int runLength : new int[] {4, 32, 256}) {
+			StringBuilder input = new StringBuilder();
+			while(input.length() < INPUT_LENGTH) {
+				input.append("/*").append("x".repeat(runLength)).append("*/").append(" ".repeat(runLength)).append("word");
+			}
+			String text = input.toString();
+			BenchmarkRunner.measure("stepping, runs of " + runLength, text.length(), () -> count(stepping, text));
+			BenchmarkRunner.measure("skipping, runs of " + runLength, text.length(), () -> count(skipping, text));
+		}
+	}
+
+	private static long count(Lexer lexer, String input) {
+		long tokens = 0;
+		Lexer.Instance instance = lexer.newInstance(input);
+		while(instance.next()) {
+			++tokens;
+		}
+		return tokens;
+	}
+
+}
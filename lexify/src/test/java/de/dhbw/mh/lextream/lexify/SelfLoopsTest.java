@@ -0,0 +1,38 @@
+package de.dhbw.mh.lextream.lexify;
+
+import static de.dhbw.mh.lextream.lexify.TestAutomata.blockComment;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.literal;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.oneOrMore;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.specification;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.tokenize;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.trickling;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import de.dhbw.mh.lextream.lexport.LexerSpecification;
+
+class SelfLoopsTest {
+
+	private static LexerSpecification blockComments() {
+		return specification(
+				blockComment(), "COMMENT",
+				oneOrMore('a', 'z'), "WORD",
+				oneOrMore(' ', ' '), "BLANK",
+				literal("/"), "SLASH"
+		);
+	}
+
+	@Test
+	void skipsSelfLoopsLikeSteppingEachCharacter() {
+		String input = "a /* x * y ** / \u00FC \uD83D\uDE00 */ b    c/**/ / /*" + "-".repeat(100) + "***/" + " ".repeat(100) + "d";
+
+		Lexer skipping = Lexer.from(blockComments(), new Lexer.Options().skipSelfLoops(true));
+		Lexer stepping = Lexer.from(blockComments());
+
+		assertThat(tokenize(skipping, input)).isEqualTo(tokenize(stepping, input));
+		assertThat(tokenize(skipping.newInstance(trickling(input)))).isEqualTo(tokenize(stepping, input));
+		assertThat(tokenize(skipping, input)).contains("COMMENT(/**/)@30", "BLANK(" + " ".repeat(100) + ")@143");
+	}
+
+}
@@ -0,0 +1,119 @@
+package de.dhbw.mh.lextream.lexify;
+
+import static de.dhbw.mh.redeggs.CodePointRange.range;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import de.dhbw.mh.redeggs.CodePointRange;
+
+/**
+ * Compares the classification cost of the symbol strategies against a
+ * binary search over the sorted symbol ranges.
+ */
+class SymbolStrategyBenchmark {
+
+	private static final int INPUT_LENGTH = 1 << 22;
+
+	public static void main(String... args) {
+		Random random = new Random(42);
+
+		Map<Integer, CodePointRange> ascii = splitIntoGroups(' ', '~', 24);
+		int[] asciiInput = randomCodePoints(random, ' ', '~');
+		run("ASCII", ascii, asciiInput, new ArraySymbolStrategy.Builder(ascii).build());
+
+		Map<Integer, CodePointRange> unicode = splitIntoGroups(' ', 0x9FFF, 200);
+		int[] unicodeInput = randomCodePoints(random, ' ', 0x9FFF);
+		run("Unicode", unicode, unicodeInput, null);
+	}
+
+	private static void run(String name, Map<Integer, CodePointRange> groups, int[] input, SymbolStrategy array) {
+		BinarySearch binarySearch = new BinarySearch(groups);
+		PagedSymbolStrategy paged = new PagedSymbolStrategy(groups);
+
+		BenchmarkRunner.measure(name + ": binary search", input.length, () -> binarySearch.classifyAll(input));
+		if(array != null) {
+			BenchmarkRunner.measure(name + ": array", input.length, () -> classifyAll(array, input));
+		}
+		BenchmarkRunner.measure(name + ": two-level table", input.length, () -> classifyAll(paged, input));
+	}
+
+	private static long classifyAll(SymbolStrategy symbols, int[] input) {
+		long sum = 0;
+		for(int codePoint : input) {
+			sum += symbols.containing(codePoint);
+		}
+		return sum;
+	}
+
+	private static Map<Integer, CodePointRange> splitIntoGroups(int first, int last, int numberOfGroups) {
+		Map<Integer, CodePointRange> groups = new HashMap<>();
+		int width = (last - first + 1) / numberOfGroups;
+		for(int group = 1; group <= numberOfGroups; ++group) {
+			int start = first + (group - 1) * width;
+			int end = (group == numberOfGroups) ? last : start + width - 1;
+			groups.put(group, range(start, end));
+		}
+		return groups;
+	}
+
+	private static int[] randomCodePoints(Random random, int first, int last) {
+		int[] codePoints = new int[INPUT_LENGTH];
+		for(int i = 0; i < codePoints.length; ++i) {
+			codePoints[i] = first + random.nextInt(last - first + 1);
+		}
+		return codePoints;
+	}
+
+
+	/**
+	 * Classification by binary search over the sorted ranges, as baseline.
+	 */
+	private static class BinarySearch {
+		private final int[] firstCodePoints;
+		private final int[] lastCodePoints;
+		private final int[] groupIds;
+
+		BinarySearch(Map<Integer, CodePointRange> groups) {
+			List<Map.Entry<Integer, CodePointRange>> sorted = new ArrayList<>(groups.entrySet());
+			sorted.sort(Comparator.comparingInt(entry -> entry.getValue().firstCodePoint));
+			firstCodePoints = new int[sorted.size()];
+			lastCodePoints = new int[sorted.size()];
+			groupIds = new int[sorted.size()];
+			for(int i = 0; i < sorted.size(); ++i) {
+				firstCodePoints[i] = sorted.get(i).getValue().firstCodePoint;
+				lastCodePoints[i] = sorted.get(i).getValue().lastCodePoint;
+				groupIds[i] = sorted.get(i).getKey();
+			}
+		}
+
+		int containing(int codePoint) {
+			int low = 0;
+			int high = firstCodePoints.length - 1;
+			while(low <= high) {
+				int middle = (low + high) >>> 1;
+				if(lastCodePoints[middle] < codePoint) {
+					low = middle + 1;
+				} else if(firstCodePoints[middle] > codePoint) {
+					high = middle - 1;
+				} else {
+					return groupIds[middle];
+				}
+			}
+			return 0;
+		}
+
+		long classifyAll(int[] input) {
+			long sum = 0;
+			for(int codePoint : input) {
+				sum += containing(codePoint);
+			}
+			return sum;
+		}
+	}
+
+}
@@ -0,0 +1,58 @@
+package de.dhbw.mh.lextream.lexify;
+
+import static de.dhbw.mh.redeggs.CodePointRange.range;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import de.dhbw.mh.redeggs.CodePointRange;
+
+class SymbolStrategyTest {
+
+	private static final Map<Integer, CodePointRange> WIDE_SYMBOLS = Map.of(
+			1, range('a', 'z'),
+			2, range(0x0391, 0x03A9), // Greek capital letters
+			3, range(0x4E00, 0x9FFF), // CJK unified ideographs
+			4, range(0x1F600, 0x1F64F) // emoticons
+	);
+
+	@Test
+	void usesArrayForNarrowRanges() {
+		SymbolStrategy symbols = SymbolStrategy.basedOn(Map.of(1, range('a', 'z'), 2, range('0', '9')));
+
+		assertThat(symbols).isInstanceOf(ArraySymbolStrategy.class);
+	}
+
+	@Test
+	void classifiesCodePointsOfWideRanges() {
+		SymbolStrategy symbols = SymbolStrategy.basedOn(WIDE_SYMBOLS);
+
+		assertThat(symbols).isInstanceOf(PagedSymbolStrategy.class);
+		assertThat(symbols.numberOfGroups()).isEqualTo(5);
+		assertThat(symbols.containing('a')).isEqualTo(1);
+		assertThat(symbols.containing('z')).isEqualTo(1);
+		assertThat(symbols.containing('A')).isEqualTo(0);
+		assertThat(symbols.containing(0x0391)).isEqualTo(2);
+		assertThat(symbols.containing(0x03A9)).isEqualTo(2);
+		assertThat(symbols.containing(0x03AA)).isEqualTo(0);
+		assertThat(symbols.containing(0x4DFF)).isEqualTo(0);
+		assertThat(symbols.containing(0x4E00)).isEqualTo(3);
+		assertThat(symbols.containing(0x7FFF)).isEqualTo(3);
+		assertThat(symbols.containing(0x9FFF)).isEqualTo(3);
+		assertThat(symbols.containing(0x1F600)).isEqualTo(4);
+		assertThat(symbols.containing(0x1F650)).isEqualTo(0);
+		assertThat(symbols.containing(-1)).isEqualTo(0);
+		assertThat(symbols.containing(Character.MAX_CODE_POINT + 1)).isEqualTo(0);
+	}
+
+	@Test
+	void storesIdenticalPagesOnlyOnce() {
+		PagedSymbolStrategy symbols = new PagedSymbolStrategy(WIDE_SYMBOLS);
+
+		// Latin-1, Greek, emoticons, all-CJK and the empty page
+		assertThat(symbols.numberOfDistinctPages()).isEqualTo(5);
+	}
+
+}
@@ -0,0 +1,208 @@
+package de.dhbw.mh.lextream.lexify;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.dhbw.mh.lextream.lexport.DfaModel;
+import de.dhbw.mh.lextream.lexport.LexerSpecification;
+
+/**
+ * Hand-written DFA models and specifications for tests, so lexify can be
+ * tested without lexpress.
+ */
+final class TestAutomata {
+
+	private TestAutomata() {
+		// prevent instantiation
+	}
+
+	/**
+	 * Starts a DFA with initial state {@code q0}.
+	 */
+	static Builder automaton() {
+		return new Builder();
+	}
+
+	/**
+	 * A DFA matching exactly the given text.
+	 */
+	static DfaModel literal(String text) {
+		Builder builder = automaton();
+		for(int i = 0; i < text.length(); ++i) {
+			builder.on("q" + i, text.charAt(i), "q" + (i + 1));
+		}
+		return builder.accept("q" + text.length()).build();
+	}
+
+	/**
+	 * A DFA matching one or more code points of the given range.
+	 */
+	static DfaModel oneOrMore(int firstCodePoint, int lastCodePoint) {
+		return automaton()
+				.on("q0", firstCodePoint, lastCodePoint, "q1")
+				.on("q1", firstCodePoint, lastCodePoint, "q1")
+				.accept("q1")
+				.build();
+	}
+
+	/**
+	 * Creates a specification from alternating DFA models and token types.
+	 */
+	static LexerSpecification specification(Object... modelsAndTypes) {
+		LexerSpecification spec = new LexerSpecification();
+		for(int i = 0; i < modelsAndTypes.length; i += 2) {
+			spec.addRule((DfaModel) modelsAndTypes[i], (String) modelsAndTypes[i + 1]);
+		}
+		return spec;
+	}
+
+	static final String ARITHMETIC_INPUT = "x1 = 42 + foo;";
+
+	/**
+	 * Identifiers, numbers, blanks and a few operators.
+	 */
+	static LexerSpecification arithmetic() {
+		return specification(
+				automaton()
+						.on("q0", 'a', 'z', "q1")
+						.on("q1", 'a', 'z', "q1")
+						.on("q1", '0', '9', "q1")
+						.accept("q1")
+						.build(), "IDENTIFIER",
+				oneOrMore('0', '9'), "NUMBER",
+				oneOrMore(' ', ' '), "WHITESPACE",
+				literal("="), "ASSIGN",
+				literal("+"), "PLUS",
+				literal(";"), "SEMICOLON"
+		);
+	}
+
+	static final String MULTILINGUAL_INPUT = "gr\u00FC\u00DFe \u20AC stra\u00DFe \uD83D\uDE00\uD83D\uDE4F f\u00FCr\u20AC";
+
+	/**
+	 * Words of Latin letters, euro signs, emoji and blanks, whose characters
+	 * take one to four bytes in UTF-8.
+	 */
+	static LexerSpecification multilingual() {
+		return specification(
+				automaton()
+						.on("q0", 'a', 'z', "q1")
+						.on("q0", 0xC0, 0x17F, "q1")
+						.on("q1", 'a', 'z', "q1")
+						.on("q1", 0xC0, 0x17F, "q1")
+						.accept("q1")
+						.build(), "WORD",
+				literal("\u20AC"), "EURO",
+				oneOrMore(0x1F600, 0x1F64F), "EMOJI",
+				oneOrMore(' ', ' '), "BLANK"
+		);
+	}
+
+	/**
+	 * A DFA matching C-style block comments.
+	 */
+	static DfaModel blockComment() {
+		return automaton()
+				.on("q0", '/', "q1")
+				.on("q1", '*', "q2")
+				.on("q2", 0, '*' - 1, "q2")
+				.on("q2", '*' + 1, Character.MAX_CODE_POINT, "q2")
+				.on("q2", '*', "q3")
+				.on("q3", '*', "q3")
+				.on("q3", 0, '*' - 1, "q2")
+				.on("q3", '*' + 1, '/' - 1, "q2")
+				.on("q3", '/' + 1, Character.MAX_CODE_POINT, "q2")
+				.on("q3", '/', "q4")
+				.accept("q4")
+				.build();
+	}
+
+	/**
+	 * Returns a reader that delivers at most three characters per read, so the
+	 * lexer has to refill its buffer in the middle of tokens.
+	 */
+	static Reader trickling(String input) {
+		return new FilterReader(new StringReader(input)) {
+			@Override
+			public int read(char[] buffer, int offset, int length) throws IOException {
+				return super.read(buffer, offset, Math.min(length, 3));
+			}
+		};
+	}
+
+	/**
+	 * Tokenizes the input and formats every token as {@code type(lexeme)@start}.
+	 */
+	static List<String> tokenize(Lexer lexer, String input) {
+		return tokenize(lexer.newInstance(input));
+	}
+
+	static List<String> tokenize(Lexer.Instance instance) {
+		List<String> tokens = new ArrayList<>();
+		while(!instance.completed()) {
+			instance.advance();
+			tokens.add(describe(instance.getToken()));
+		}
+		return tokens;
+	}
+
+	static String describe(Lexer.Token token) {
+		return String.format("%s(%s)@%d", token.type, token.lexeme, token.startOffset);
+	}
+
+
+	static class Builder {
+		private final DfaModel model = new DfaModel();
+
+		private Builder() {
+			model.addState("q0");
+			model.setInitialState("q0");
+		}
+
+		Builder on(String origin, int codePoint, String target) {
+			return on(origin, codePoint, codePoint, target);
+		}
+
+		Builder on(String origin, int firstCodePoint, int lastCodePoint, String target) {
+			model.addState(origin);
+			model.addState(target);
+			model.addTransition(origin, model.getRange(firstCodePoint, lastCodePoint), target);
+			return this;
+		}
+
+		/**
+		 * Tags the transition from {@code origin} on the given range as reading
+		 * the first character of a capture group.
+		 */
+		Builder startCapture(String origin, int firstCodePoint, int lastCodePoint, String group) {
+			model.addCaptureStart(origin, model.getRange(firstCodePoint, lastCodePoint), group);
+			return this;
+		}
+
+		/**
+		 * Tags the transition from {@code origin} on the given range as reading
+		 * the last character of a capture group.
+		 */
+		Builder endCapture(String origin, int firstCodePoint, int lastCodePoint, String group) {
+			model.addCaptureEnd(origin, model.getRange(firstCodePoint, lastCodePoint), group);
+			return this;
+		}
+
+		Builder accept(String... states) {
+			for(String state : states) {
+				model.addState(state);
+				model.addAcceptingState(state);
+			}
+			return this;
+		}
+
+		DfaModel build() {
+			return model;
+		}
+	}
+
+}
@@ -0,0 +1,58 @@
+package de.dhbw.mh.lextream.lexify;
+
+import java.util.Random;
+
+import de.dhbw.mh.lextream.lexport.LexerSpecification;
+
+/**
+ * Compares converting numbers and hashing identifiers in a second pass over
+ * the lexemes of the tokens with doing so in actions while scanning.
+ */
+class TokenActionBenchmark {
+
+	private static final int INPUT_LENGTH = 1 << 22;
+
+	private static long sum;
+
+	public static void main(String... args) {
+		LexerSpecification spec = TestAutomata.specification(
+				TestAutomata.oneOrMore('a', 'z'), "IDENTIFIER",
+				TestAutomata.oneOrMore('0', '9'), "NUMBER",
+				TestAutomata.oneOrMore(' ', ' '), "BLANK"
+		);
+		Lexer lexer = Lexer.from(spec);
+		Lexer withActions = lexer
+				.withAction("NUMBER", TokenAction.decimal(value -> sum += value))
+				.withAction("IDENTIFIER", TokenAction.identifierHash(hash -> sum += hash));
+
+		Random random = new Random(42);
+		StringBuilder input = new StringBuilder();
+		while(input.length() < INPUT_LENGTH) {
+			input.append(random.nextBoolean() ? Integer.toString(random.nextInt(1_000_000)) : "identifier".substring(random.nextInt(9)));
+			input.append(' ');
+		}
+		String text = input.toString();
+
+		BenchmarkRunner.measure("second pass", text.length(), () -> {
+			Lexer.Instance instance = lexer.newInstance(text);
+			while(!instance.completed()) {
+				instance.advance();
+				Lexer.Token token = instance.getToken();
+				if(token.type.equals("NUMBER")) {
+					sum += Long.parseLong(token.lexeme);
+				} else if(token.type.equals("IDENTIFIER")) {
+					sum += token.lexeme.hashCode();
+				}
+			}
+			return sum;
+		});
+		BenchmarkRunner.measure("actions", text.length(), () -> {
+			Lexer.Instance instance = withActions.newInstance(text);
+			while(instance.next()) {
+				// the actions see every token
+			}
+			return sum;
+		});
+	}
+
+}
@@ -0,0 +1,75 @@
+package de.dhbw.mh.lextream.lexify;
+
+import static de.dhbw.mh.lextream.lexify.TestAutomata.ARITHMETIC_INPUT;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.arithmetic;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.tokenize;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.trickling;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class TokenActionTest {
+
+	@Test
+	void callsActionsWithTheRangesOfMatches() {
+		Lexer lexer = Lexer.from(arithmetic());
+		List<Long> numbers = new ArrayList<>();
+		List<Integer> hashes = new ArrayList<>();
+		List<String> plusSigns = new ArrayList<>();
+		Lexer withActions = lexer
+				.withAction("NUMBER", TokenAction.decimal(numbers::add))
+				.withAction("IDENTIFIER", TokenAction.identifierHash(hashes::add))
+				.withAction("PLUS", (input, start, end) -> plusSigns.add(input.subSequence(start, end).toString()));
+
+		assertThat(tokenize(withActions.newInstance(trickling(ARITHMETIC_INPUT.repeat(3))))).isEqualTo(tokenize(lexer, ARITHMETIC_INPUT.repeat(3)));
+		assertThat(numbers).containsExactly(42L, 42L, 42L);
+		assertThat(hashes).containsExactly("x1".hashCode(), "foo".hashCode(), "x1".hashCode(), "foo".hashCode(), "x1".hashCode(), "foo".hashCode());
+		assertThat(plusSigns).containsExactly("+", "+", "+");
+		assertThatThrownBy(() -> lexer.withAction("COMMENT", TokenAction.decimal(numbers::add)))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void parsesIntegersWithoutSubstrings() {
+		List<Long> values = new ArrayList<>();
+		TokenAction decimal = TokenAction.decimal(values::add);
+		TokenAction hexadecimal = TokenAction.hexadecimal(values::add);
+
+		decimal.matched("x=9223372036854775807;", 2, 21);
+		decimal.matched("-9223372036854775808", 0, 20);
+		decimal.matched("+17", 0, 3);
+		hexadecimal.matched("0x1F", 0, 4);
+		hexadecimal.matched("ffffffffffffffff", 0, 16);
+
+		assertThat(values).containsExactly(Long.MAX_VALUE, Long.MIN_VALUE, 17L, 31L, -1L);
+		assertThatThrownBy(() -> decimal.matched("9223372036854775808", 0, 19)).isInstanceOf(NumberFormatException.class);
+		assertThatThrownBy(() -> decimal.matched("-", 0, 1)).isInstanceOf(NumberFormatException.class);
+		assertThatThrownBy(() -> hexadecimal.matched("0x", 0, 2)).isInstanceOf(NumberFormatException.class);
+		assertThatThrownBy(() -> hexadecimal.matched("10000000000000000", 0, 17)).isInstanceOf(NumberFormatException.class);
+	}
+
+	@Test
+	void rejectsActionsWhereOnlyTheScanIsRun() {
+		Lexer lexer = Lexer.from(arithmetic());
+		TokenBuffer tokens = lexer.tokenizeAll(List.of(ARITHMETIC_INPUT));
+		List<Long> numbers = new ArrayList<>();
+		Lexer withActions = lexer.withAction("NUMBER", TokenAction.decimal(numbers::add));
+
+		assertThatThrownBy(() -> withActions.tokenizeAll(List.of(ARITHMETIC_INPUT))).isInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(() -> withActions.tokenizeParallel(ARITHMETIC_INPUT)).isInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(() -> withActions.relex(tokens, ARITHMETIC_INPUT + "7", ARITHMETIC_INPUT.length(), 0, 1))
+				.isInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(() -> withActions.newInstance(ByteBuffer.wrap(ARITHMETIC_INPUT.getBytes(StandardCharsets.UTF_8))))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("token actions");
+		assertThat(withActions.stream(ARITHMETIC_INPUT).count()).isEqualTo(10);
+		assertThat(numbers).containsExactly(42L);
+	}
+
+}
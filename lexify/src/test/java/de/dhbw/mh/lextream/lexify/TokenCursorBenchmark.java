@@ -0,0 +1,42 @@
+package de.dhbw.mh.lextream.lexify;
+
+import de.dhbw.mh.lextream.lexport.LexerSpecification;
+
+/**
+ * Compares reading tokens as {@link Lexer.Token} objects against reading
+ * them through the allocation-free cursor.
+ */
+class TokenCursorBenchmark {
+
+	public static void main(String... args) {
+		LexerSpecification spec = TestAutomata.specification(
+				TestAutomata.oneOrMore('a', 'z'), "IDENTIFIER",
+				TestAutomata.oneOrMore('0', '9'), "NUMBER",
+				TestAutomata.oneOrMore(' ', ' '), "WHITESPACE",
+				TestAutomata.literal("+"), "PLUS"
+		);
+		Lexer lexer = Lexer.from(spec);
+		String input = "foo + 42 ".repeat(1 << 18);
+		long tokens = 6L << 18;
+
+		BenchmarkRunner.measure("getToken()", tokens, () -> {
+			Lexer.Instance instance = lexer.newInstance(input);
+			long checksum = 0;
+			while(!instance.completed()) {
+				instance.advance();
+				Lexer.Token token = instance.getToken();
+				checksum += token.type.length() + token.lexeme.length();
+			}
+			return checksum;
+		});
+		BenchmarkRunner.measure("cursor", tokens, () -> {
+			Lexer.Instance instance = lexer.newInstance(input);
+			long checksum = 0;
+			while(instance.next()) {
+				checksum += instance.typeId() + instance.lexeme().length();
+			}
+			return checksum;
+		});
+	}
+
+}
@@ -0,0 +1,166 @@
+package de.dhbw.mh.lextream.lexify;
+
+import static de.dhbw.mh.lextream.lexify.TestAutomata.ARITHMETIC_INPUT;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.arithmetic;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.describe;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.tokenize;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class TokenPublisherTest {
+
+	@Test
+	void publishesTokensOnlyAsFastAsRequested() {
+		Lexer lexer = Lexer.from(arithmetic());
+		Flow.Processor<ByteBuffer, Lexer.Token> publisher = lexer.newPublisher(StandardCharsets.UTF_8);
+		long[] requestedChunks = new long[1];
+		publisher.onSubscribe(new Flow.Subscription() {
+			@Override
+			public void request(long n) {
+				requestedChunks[0] += n;
+			}
+
+			@Override
+			public void cancel() {
+				requestedChunks[0] = -1;
+			}
+		});
+		List<String> received = new ArrayList<>();
+		List<Flow.Subscription> subscription = new ArrayList<>();
+		boolean[] completed = new boolean[1];
+		publisher.subscribe(new Flow.Subscriber<Lexer.Token>() {
+			@Override
+			public void onSubscribe(Flow.Subscription tokens) {
+				subscription.add(tokens);
+			}
+
+			@Override
+			public void onNext(Lexer.Token token) {
+				received.add(describe(token));
+			}
+
+			@Override
+			public void onError(Throwable throwable) {
+				throw new AssertionError(throwable);
+			}
+
+			@Override
+			public void onComplete() {
+				completed[0] = true;
+			}
+		});
+		List<String> expected = tokenize(lexer, ARITHMETIC_INPUT + ARITHMETIC_INPUT);
+
+		assertThat(requestedChunks[0]).isEqualTo(0);
+		subscription.get(0).request(2);
+		assertThat(requestedChunks[0]).isEqualTo(1);
+		publisher.onNext(ByteBuffer.wrap(ARITHMETIC_INPUT.getBytes(StandardCharsets.UTF_8)));
+		assertThat(received).isEqualTo(expected.subList(0, 2));
+		assertThat(requestedChunks[0]).isEqualTo(1);
+
+		subscription.get(0).request(100);
+		assertThat(requestedChunks[0]).isEqualTo(2);
+		publisher.onNext(ByteBuffer.wrap(ARITHMETIC_INPUT.getBytes(StandardCharsets.UTF_8)));
+		publisher.onComplete();
+		assertThat(received).isEqualTo(expected);
+		assertThat(completed[0]).isTrue();
+	}
+
+	@Test
+	void publishesTokensOfAnAsynchronousSource() throws Exception {
+		Lexer lexer = Lexer.from(arithmetic());
+		String input = ARITHMETIC_INPUT.repeat(1_000);
+		byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+		Flow.Processor<ByteBuffer, Lexer.Token> publisher = lexer.newPublisher(StandardCharsets.UTF_8);
+		CompletableFuture<List<String>> received = new CompletableFuture<>();
+		publisher.subscribe(new Flow.Subscriber<Lexer.Token>() {
+			private final List<String> tokens = new ArrayList<>();
+			private Flow.Subscription subscription;
+
+			@Override
+			public void onSubscribe(Flow.Subscription subscription) {
+				this.subscription = subscription;
+				subscription.request(1);
+			}
+
+			@Override
+			public void onNext(Lexer.Token token) {
+				tokens.add(describe(token));
+				subscription.request(1);
+			}
+
+			@Override
+			public void onError(Throwable throwable) {
+				received.completeExceptionally(throwable);
+			}
+
+			@Override
+			public void onComplete() {
+				received.complete(tokens);
+			}
+		});
+
+		try(SubmissionPublisher<ByteBuffer> source = new SubmissionPublisher<>()) {
+			source.subscribe(publisher);
+			for(int offset = 0; offset < bytes.length; offset += 7) {
+				source.submit(ByteBuffer.wrap(bytes, offset, Math.min(7, bytes.length - offset)));
+			}
+		}
+		assertThat(received.get(10, TimeUnit.SECONDS)).isEqualTo(tokenize(lexer, input));
+	}
+
+	@Test
+	void failsSubscribersOnUnexpectedSequences() {
+		Lexer lexer = Lexer.from(arithmetic());
+		Flow.Processor<ByteBuffer, Lexer.Token> publisher = lexer.newPublisher(StandardCharsets.UTF_8);
+		boolean[] cancelled = new boolean[1];
+		publisher.onSubscribe(new Flow.Subscription() {
+			@Override
+			public void request(long n) {
+				publisher.onNext(ByteBuffer.wrap("x = #".getBytes(StandardCharsets.UTF_8)));
+			}
+
+			@Override
+			public void cancel() {
+				cancelled[0] = true;
+			}
+		});
+		List<Throwable> failures = new ArrayList<>();
+		publisher.subscribe(new Flow.Subscriber<Lexer.Token>() {
+			@Override
+			public void onSubscribe(Flow.Subscription subscription) {
+				subscription.request(Long.MAX_VALUE);
+			}
+
+			@Override
+			public void onNext(Lexer.Token token) {
+				// the tokens before the unexpected sequence are not checked here
+			}
+
+			@Override
+			public void onError(Throwable throwable) {
+				failures.add(throwable);
+			}
+
+			@Override
+			public void onComplete() {
+				throw new AssertionError("The input contains an unexpected sequence.");
+			}
+		});
+
+		assertThat(cancelled[0]).isTrue();
+		assertThat(failures).hasSize(1);
+		assertThat(failures.get(0)).isInstanceOf(IllegalStateException.class).hasMessageContaining("Unexpected sequence");
+	}
+
+}
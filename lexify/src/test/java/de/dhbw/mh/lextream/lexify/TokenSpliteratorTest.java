@@ -0,0 +1,101 @@
+package de.dhbw.mh.lextream.lexify;
+
+import static de.dhbw.mh.lextream.lexify.TestAutomata.ARITHMETIC_INPUT;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.arithmetic;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.literal;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.oneOrMore;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.specification;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.tokenize;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import de.dhbw.mh.lextream.lexport.LexerSpecification;
+
+class TokenSpliteratorTest {
+
+	@Test
+	void streamsTokensInParallelLikeSequentially() {
+		LexerSpecification spec = specification(
+				oneOrMore('a', 'z'), "WORD",
+				oneOrMore('0', '9'), "NUMBER",
+				literal(";"), "SEMICOLON"
+		);
+		spec.addRule(oneOrMore(' ', ' '), "BLANK", true);
+		Lexer lexer = Lexer.from(spec);
+		StringBuilder builder = new StringBuilder();
+		for(int i = 0; builder.length() < 1 << 20; ++i) {
+			builder.append((i % 5 == 0) ? "count 42; " : "plain words;");
+		}
+		String input = builder.toString();
+		List<String> expected = tokenize(lexer, input);
+
+		assertThat(lexer.stream(input).map(TestAutomata::describe).collect(Collectors.toList())).isEqualTo(expected);
+		assertThat(lexer.stream(input).parallel().map(TestAutomata::describe).collect(Collectors.toList())).isEqualTo(expected);
+		assertThat(lexer.stream(input).parallel().filter(token -> token.type.equals("NUMBER")).count())
+				.isEqualTo(expected.stream().filter(token -> token.startsWith("NUMBER")).count());
+	}
+
+	@Test
+	void streamsTokensLikeAnInstance() {
+		String input = ("x1 = 42 + foo; # $" + "\uD83D\uDE00").repeat(2_000);
+
+		for(Lexer.Options options : List.of(
+				new Lexer.Options().fuseRules(false).recoverFromErrors(Lexer.ErrorRecovery.ONE_CHARACTER),
+				new Lexer.Options().recoverFromErrors(Lexer.ErrorRecovery.UP_TO_NEXT_START))) {
+			Lexer lexer = Lexer.from(arithmetic(), options);
+			List<String> expected = tokenize(lexer, input);
+
+			assertThat(lexer.stream(input).map(TestAutomata::describe).collect(Collectors.toList())).isEqualTo(expected);
+			assertThat(lexer.stream(input).parallel().map(TestAutomata::describe).collect(Collectors.toList())).isEqualTo(expected);
+		}
+	}
+
+	@Test
+	void streamsCharSequencesWithoutCopyingThem() {
+		// the long identifier exceeds the maximum token length of streamed instances
+		String input = ARITHMETIC_INPUT.repeat(2_000) + "x".repeat(100) + ";";
+		CharSequence uncopyable = new CharSequence() {
+			@Override
+			public int length() {
+				return input.length();
+			}
+
+			@Override
+			public char charAt(int index) {
+				return input.charAt(index);
+			}
+
+			@Override
+			public CharSequence subSequence(int start, int end) {
+				return input.subSequence(start, end);
+			}
+
+			@Override
+			public String toString() {
+				throw new UnsupportedOperationException();
+			}
+		};
+		Lexer lexer = Lexer.from(arithmetic(), new Lexer.Options().maxTokenLength(64));
+		List<String> expected = tokenize(lexer, input);
+
+		assertThat(tokenize(lexer.newInstance(new StringBuilder(input)))).isEqualTo(expected);
+		assertThat(lexer.stream(uncopyable).map(TestAutomata::describe).collect(Collectors.toList())).isEqualTo(expected);
+		assertThat(lexer.stream(uncopyable).parallel().map(TestAutomata::describe).collect(Collectors.toList())).isEqualTo(expected);
+	}
+
+	@Test
+	void rejectsUnexpectedSequencesInStreams() {
+		Lexer lexer = Lexer.from(arithmetic());
+		String input = ARITHMETIC_INPUT.repeat(20_000) + "#" + ARITHMETIC_INPUT.repeat(20_000);
+
+		assertThatThrownBy(() -> lexer.stream(input).parallel().count())
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("'#'");
+	}
+
+}
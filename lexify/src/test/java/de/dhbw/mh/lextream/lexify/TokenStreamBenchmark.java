@@ -0,0 +1,45 @@
+package de.dhbw.mh.lextream.lexify;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import de.dhbw.mh.lextream.lexport.LexerSpecification;
+
+/**
+ * Counts the tokens of each type with an instance, with a sequential stream
+ * and with a parallel stream of tokens.
+ */
+class TokenStreamBenchmark {
+
+	public static void main(String... args) {
+		LexerSpecification spec = TestAutomata.specification(
+				TestAutomata.oneOrMore('a', 'z'), "IDENTIFIER",
+				TestAutomata.oneOrMore('0', '9'), "NUMBER",
+				TestAutomata.oneOrMore(' ', ' '), "WHITESPACE",
+				TestAutomata.literal("\n"), "NEWLINE",
+				TestAutomata.literal("+"), "PLUS",
+				TestAutomata.literal(";"), "SEMICOLON"
+		);
+		Lexer lexer = Lexer.from(spec);
+		String input = "foo + 42;\nbar + baz;\n".repeat(1 << 20);
+
+		BenchmarkRunner.measure("instance", input.length(), () -> {
+			Lexer.Instance instance = lexer.newInstance(input);
+			long[] counts = new long[lexer.tokenTypes().size()];
+			while(!instance.completed()) {
+				instance.advance();
+				++counts[lexer.tokenTypes().indexOf(instance.getToken().type)];
+			}
+			return counts[0];
+		});
+		BenchmarkRunner.measure("sequential stream", input.length(), () -> countByType(lexer, input, false).size());
+		BenchmarkRunner.measure("parallel stream", input.length(), () -> countByType(lexer, input, true).size());
+		System.out.printf("(%d processors available)%n", Runtime.getRuntime().availableProcessors());
+	}
+
+	private static Map<String, Long> countByType(Lexer lexer, String input, boolean parallel) {
+		return (parallel ? lexer.stream(input).parallel() : lexer.stream(input))
+				.collect(Collectors.groupingBy(token -> token.type, Collectors.counting()));
+	}
+
+}
@@ -0,0 +1,75 @@
+package de.dhbw.mh.lextream.lexify;
+
+import static de.dhbw.mh.lextream.lexify.TestAutomata.MULTILINGUAL_INPUT;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.multilingual;
+import static de.dhbw.mh.lextream.lexify.TestAutomata.tokenize;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class Utf8AutomatonTest {
+
+	@Test
+	void tokenizesUtf8BytesLikeDecodedInput() {
+		Lexer lexer = Lexer.from(multilingual());
+		ByteBuffer bytes = ByteBuffer.wrap(MULTILINGUAL_INPUT.getBytes(StandardCharsets.UTF_8));
+
+		List<String> tokens = new ArrayList<>();
+		Lexer.Utf8Instance instance = lexer.newInstance(bytes);
+		while(!instance.completed()) {
+			instance.advance();
+			Lexer.Token token = instance.getToken();
+			tokens.add(String.format("%s(%s)@%d", token.type, token.lexeme, instance.getStartCharOffset()));
+		}
+
+		assertThat(tokens).isEqualTo(tokenize(lexer, MULTILINGUAL_INPUT));
+	}
+
+	@Test
+	void reportsByteAndCharOffsetsOfUtf8Tokens() {
+		Lexer lexer = Lexer.from(multilingual());
+		String input = "\u00FC \uD83D\uDE00\uD83D\uDE4F \u20AC";
+		Lexer.Utf8Instance instance = lexer.newInstance(ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8)));
+
+		List<String> tokens = new ArrayList<>();
+		while(!instance.completed()) {
+			instance.advance();
+			Lexer.Token token = instance.getToken();
+			tokens.add(String.format("%s %d-%d %d-%d", token.type, token.startOffset, token.endOffset,
+					instance.getStartCharOffset(), instance.getEndCharOffset()));
+		}
+
+		assertThat(tokens).containsExactly(
+				"WORD 0-2 0-1", "BLANK 2-3 1-2", "EMOJI 3-11 2-6", "BLANK 11-12 6-7", "EURO 12-15 7-8"
+		);
+	}
+
+	@Test
+	void rejectsInvalidUtf8() {
+		Lexer lexer = Lexer.from(multilingual());
+		// an overlong encoding of 'a' and a truncated euro sign
+		for(byte[] invalid : new byte[][] {{(byte) 0xC1, (byte) 0xA1}, {(byte) 0xE2, (byte) 0x82}}) {
+			Lexer.Utf8Instance instance = lexer.newInstance(ByteBuffer.wrap(invalid));
+			instance.advance();
+
+			assertThatThrownBy(instance::getToken).isInstanceOf(IllegalStateException.class);
+		}
+	}
+
+	@Test
+	void rejectsLexersThatRecoverFromErrors() {
+		Lexer lexer = Lexer.from(multilingual(), new Lexer.Options().recoverFromErrors(Lexer.ErrorRecovery.ONE_CHARACTER));
+		ByteBuffer bytes = ByteBuffer.wrap(MULTILINGUAL_INPUT.getBytes(StandardCharsets.UTF_8));
+
+		assertThatThrownBy(() -> lexer.newInstance(bytes))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("recovering from errors");
+	}
+
+}
@@ -0,0 +1,64 @@
+package de.dhbw.mh.lextream.lexify;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import de.dhbw.mh.lextream.lexport.LexerSpecification;
+
+/**
+ * Compares decoding UTF-8 input into a String before tokenizing it against
+ * walking the encoded bytes with the byte-level automaton.
+ */
+class Utf8Benchmark {
+
+	private static final int INPUT_LENGTH = 1 << 22;
+
+	public static void main(String... args) {
+		LexerSpecification spec = TestAutomata.specification(
+				TestAutomata.automaton()
+						.on("q0", 'a', 'z', "q1")
+						.on("q0", 0x0391, 0x03C9, "q1")
+						.on("q0", 0x4E00, 0x9FFF, "q1")
+						.on("q1", 'a', 'z', "q1")
+						.on("q1", 0x0391, 0x03C9, "q1")
+						.on("q1", 0x4E00, 0x9FFF, "q1")
+						.accept("q1")
+						.build(), "WORD",
+				TestAutomata.oneOrMore('0', '9'), "NUMBER",
+				TestAutomata.oneOrMore(' ', ' '), "BLANK"
+		);
+		Lexer lexer = Lexer.from(spec);
+		byte[] bytes = randomInput(new Random(42)).getBytes(StandardCharsets.UTF_8);
+		ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+
+		BenchmarkRunner.measure("decode, then tokenize chars", bytes.length, () -> {
+			Lexer.Instance instance = lexer.newInstance(new String(bytes, StandardCharsets.UTF_8));
+			long tokens = 0;
+			while(!instance.completed()) {
+				instance.advance();
+				++tokens;
+			}
+			return tokens;
+		});
+		BenchmarkRunner.measure("tokenize UTF-8 bytes", bytes.length, () -> {
+			Lexer.Utf8Instance instance = lexer.newInstance(direct);
+			long tokens = 0;
+			while(!instance.completed()) {
+				instance.advance();
+				++tokens;
+			}
+			return tokens;
+		});
+	}
+
+	private static String randomInput(Random random) {
+		String[] words = {"lexer", "\u03BB\u03AD\u03BE\u03B7", "\u8BCD\u6CD5", "42", "1024"};
+		StringBuilder input = new StringBuilder();
+		while(input.length() < INPUT_LENGTH) {
+			input.append(words[random.nextInt(words.length)]).append(' ');
+		}
+		return input.toString();
+	}
+
+}
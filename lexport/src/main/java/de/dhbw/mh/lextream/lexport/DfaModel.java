@@ -3,8 +3,10 @@ package de.dhbw.mh.lextream.lexport;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -18,6 +20,13 @@ import de.dhbw.mh.redeggs.CodePointRange;
  * This class is intended for persisting and loading DFA structures from external sources.
  * It encapsulates the automaton's states, symbols, transitions, and other related metadata.
  * It is not responsible for executing or simulating the DFA.
+ *
+ * <p>Transitions can be tagged with the start or end of capture groups, so
+ * that a lexer can report the parts of a match in the same pass. A start tag
+ * marks the character read by the transition as the first one of the group,
+ * an end tag marks it as the last one. If a group is tagged repeatedly in
+ * a match, the tags read last win, so a group inside a loop captures its
+ * last iteration.</p>
  */
 public class DfaModel {
 
@@ -26,6 +35,8 @@ public class DfaModel {
 	private final Set<String> acceptingStates = new HashSet<>();
 	private final Map<String, Map<String, String>> transitions = new HashMap<>();
 	private final Set<String> errorStates = new HashSet<>();
+	private final Map<String, Map<String, Set<String>>> captureStarts = new HashMap<>();
+	private final Map<String, Map<String, Set<String>>> captureEnds = new HashMap<>();
 	private transient int nextSymbolId = 0;
 	
 	private String initialState;
@@ -65,6 +76,59 @@ public class DfaModel {
 			.put(symbol, target);
 	}
 
+	/**
+	 * Tags a transition as reading the first character of a capture group.
+	 *
+	 * @param origin the origin state of the transition
+	 * @param symbol the symbol label of the transition
+	 * @param group  the name of the capture group
+	 */
+	public void addCaptureStart(String origin, String symbol, String group) {
+		captureStarts
+			.computeIfAbsent(origin, k -> new HashMap<>())
+			.computeIfAbsent(symbol, k -> new HashSet<>())
+			.add(group);
+	}
+
+	/**
+	 * Tags a transition as reading the last character of a capture group.
+	 *
+	 * @param origin the origin state of the transition
+	 * @param symbol the symbol label of the transition
+	 * @param group  the name of the capture group
+	 */
+	public void addCaptureEnd(String origin, String symbol, String group) {
+		captureEnds
+			.computeIfAbsent(origin, k -> new HashMap<>())
+			.computeIfAbsent(symbol, k -> new HashSet<>())
+			.add(group);
+	}
+
+	/**
+	 * Returns the start tags, indexed by origin state and symbol label.
+	 */
+	public Map<String, Map<String, Set<String>>> getCaptureStarts() {
+		return Collections.unmodifiableMap(captureStarts);
+	}
+
+	/**
+	 * Returns the end tags, indexed by origin state and symbol label.
+	 */
+	public Map<String, Map<String, Set<String>>> getCaptureEnds() {
+		return Collections.unmodifiableMap(captureEnds);
+	}
+
+	/**
+	 * Returns the names of all capture groups, in alphabetical order.
+	 */
+	public Set<String> getCaptureGroups() {
+		Set<String> groups = new TreeSet<>();
+		for(Map<String, Map<String, Set<String>>> tags : List.of(captureStarts, captureEnds)) {
+			tags.values().forEach(symbols -> symbols.values().forEach(groups::addAll));
+		}
+		return Collections.unmodifiableSet(groups);
+	}
+
 	public Set<String> getStates() {
 		return Collections.unmodifiableSet(states);
 	}
@@ -0,0 +1,229 @@
+package de.dhbw.mh.lextream.lexport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A minimal perfect hash table of keywords, which replaces the literal rules
+ * of a lexer specification that a more general rule, such as the identifier
+ * rule, matches as well.
+ *
+ * <p>A lexer reclassifies every token of one of the general types whose
+ * lexeme is a keyword. The table is built by hash and displace: the keywords
+ * are distributed into buckets by their hash, and each bucket gets a seed
+ * that, mixed into the hash, maps its keywords onto free slots. Looking up a
+ * lexeme thus costs one pass to hash it and one comparison, regardless of
+ * the number of keywords. Lexemes longer or shorter than every keyword are
+ * rejected without hashing.</p>
+ */
+public class KeywordTable {
+
+	private static final int KEYWORDS_PER_BUCKET = 2;
+	private static final int MAX_SEED = 1 << 24;
+
+	private final List<String> generalTypes;
+	private final String[] keywords;
+	private final String[] types;
+	private final int[] seeds;
+	private final int minLength;
+	private final int maxLength;
+
+	private KeywordTable(Set<String> generalTypes, String[] keywords, String[] types, int[] seeds) {
+		this.generalTypes = new ArrayList<>(new TreeSet<>(generalTypes));
+		this.keywords = keywords;
+		this.types = types;
+		this.seeds = seeds;
+		this.minLength = Arrays.stream(keywords).mapToInt(String::length).min().orElse(0);
+		this.maxLength = Arrays.stream(keywords).mapToInt(String::length).max().orElse(-1);
+	}
+
+	/**
+	 * Builds the table for the given keywords.
+	 *
+	 * @param keywordTypes the token type of each keyword
+	 * @param generalTypes the token types whose tokens may be keywords
+	 * @return the table
+	 * @throws IllegalStateException if no perfect hash could be found
+	 */
+	public static KeywordTable of(Map<String, String> keywordTypes, Set<String> generalTypes) {
+		int size = keywordTypes.size();
+		int numberOfBuckets = Math.max(1, (size + KEYWORDS_PER_BUCKET - 1) / KEYWORDS_PER_BUCKET);
+		List<List<String>> buckets = new ArrayList<>();
+		for(int bucket = 0; bucket < numberOfBuckets; ++bucket) {
+			buckets.add(new ArrayList<>());
+		}
+		for(String keyword : new TreeSet<>(keywordTypes.keySet())) {
+			buckets.get(indexOf(hash(keyword, 0, keyword.length()), numberOfBuckets)).add(keyword);
+		}
+
+		String[] keywords = new String[size];
+		String[] types = new String[size];
+		int[] seeds = new int[numberOfBuckets];
+		Integer[] largestFirst = new Integer[numberOfBuckets];
+		Arrays.setAll(largestFirst, bucket -> bucket);
+		Arrays.sort(largestFirst, Comparator.comparingInt(bucket -> -buckets.get(bucket).size()));
+		for(int bucket : largestFirst) {
+			List<String> members = buckets.get(bucket);
+			if(members.isEmpty()) {
+				break;
+			}
+			seeds[bucket] = seedFor(members, keywords, size);
+			for(String keyword : members) {
+				int slot = indexOf(mix(hash(keyword, 0, keyword.length()), seeds[bucket]), size);
+				keywords[slot] = keyword;
+				types[slot] = keywordTypes.get(keyword);
+			}
+		}
+		return new KeywordTable(generalTypes, keywords, types, seeds);
+	}
+
+	/**
+	 * Finds a seed that maps all keywords of a bucket onto distinct free slots.
+	 */
+	private static int seedFor(List<String> members, String[] keywords, int size) {
+		int[] hashes = new int[members.size()];
+		for(int i = 0; i < hashes.length; ++i) {
+			hashes[i] = hash(members.get(i), 0, members.get(i).length());
+			for(int j = 0; j < i; ++j) {
+				if(hashes[j] == hashes[i]) {
+					// no seed can separate them
+					throw new IllegalStateException(String.format("Keywords '%s' and '%s' have the same hash.", members.get(j), members.get(i)));
+				}
+			}
+		}
+		int[] slots = new int[hashes.length];
+		for(int seed = 1; seed < MAX_SEED; ++seed) {
+			boolean fits = true;
+			for(int i = 0; i < slots.length && fits; ++i) {
+				slots[i] = indexOf(mix(hashes[i], seed), size);
+				fits = keywords[slots[i]] == null;
+				for(int j = 0; j < i && fits; ++j) {
+					fits = slots[j] != slots[i];
+				}
+			}
+			if(fits) {
+				return seed;
+			}
+		}
+		throw new IllegalStateException("No perfect hash found for keywords " + members + ".");
+	}
+
+	/**
+	 * Returns the hash that distributes a keyword into its bucket. Keywords
+	 * with the same hash cannot be in one table.
+	 */
+	static int hashOf(String keyword) {
+		return hash(keyword, 0, keyword.length());
+	}
+
+	private static int hash(CharSequence text, int start, int end) {
+		int hash = 0x811C9DC5;
+		for(int index = start; index < end; ++index) {
+			hash = (hash ^ text.charAt(index)) * 0x01000193;
+		}
+		return hash;
+	}
+
+	private static int hash(char[] text, int start, int end) {
+		int hash = 0x811C9DC5;
+		for(int index = start; index < end; ++index) {
+			hash = (hash ^ text[index]) * 0x01000193;
+		}
+		return hash;
+	}
+
+	private static int mix(int hash, int seed) {
+		hash ^= seed;
+		hash ^= hash >>> 16;
+		hash *= 0x85EBCA6B;
+		return hash ^ (hash >>> 13);
+	}
+
+	/**
+	 * Maps a hash onto {@code [0, length)} by a multiplication, which is much
+	 * cheaper than the remainder of a division.
+	 */
+	private static int indexOf(int hash, int length) {
+		return (int) (((hash & 0xFFFFFFFFL) * length) >>> 32);
+	}
+
+	/**
+	 * Looks up a lexeme.
+	 *
+	 * @param text  the characters containing the lexeme
+	 * @param start the index of the first character of the lexeme
+	 * @param end   the index right after the last character of the lexeme
+	 * @return the slot of the keyword, or -1 if the lexeme is no keyword
+	 */
+	public int slotOf(CharSequence text, int start, int end) {
+		if(end - start < minLength || end - start > maxLength) {
+			return -1;
+		}
+		int slot = slotOf(hash(text, start, end));
+		String keyword = keywords[slot];
+		if(keyword.length() != end - start) {
+			return -1;
+		}
+		for(int i = 0; i < keyword.length(); ++i) {
+			if(keyword.charAt(i) != text.charAt(start + i)) {
+				return -1;
+			}
+		}
+		return slot;
+	}
+
+	/**
+	 * Looks up a lexeme in a character array.
+	 *
+	 * @see #slotOf(CharSequence, int, int)
+	 */
+	public int slotOf(char[] text, int start, int end) {
+		if(end - start < minLength || end - start > maxLength) {
+			return -1;
+		}
+		int slot = slotOf(hash(text, start, end));
+		String keyword = keywords[slot];
+		if(keyword.length() != end - start) {
+			return -1;
+		}
+		for(int i = 0; i < keyword.length(); ++i) {
+			if(keyword.charAt(i) != text[start + i]) {
+				return -1;
+			}
+		}
+		return slot;
+	}
+
+	private int slotOf(int hash) {
+		return indexOf(mix(hash, seeds[indexOf(hash, seeds.length)]), keywords.length);
+	}
+
+	/**
+	 * Returns the number of keywords, which is also the number of slots.
+	 */
+	public int size() {
+		return keywords.length;
+	}
+
+	public String keywordAt(int slot) {
+		return keywords[slot];
+	}
+
+	public String typeAt(int slot) {
+		return types[slot];
+	}
+
+	/**
+	 * Returns the token types whose tokens may be keywords.
+	 */
+	public List<String> getGeneralTypes() {
+		return Collections.unmodifiableList(generalTypes);
+	}
+
+}
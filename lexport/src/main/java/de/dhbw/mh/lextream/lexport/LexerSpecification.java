@@ -1,7 +1,11 @@
 package de.dhbw.mh.lextream.lexport;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import com.google.gson.Gson;
@@ -12,6 +16,7 @@ import com.google.gson.Gson;
 public class LexerSpecification {
 
 	private final Set<LexerRule> rules = new HashSet<>();
+	private KeywordTable keywords;
 
 	/**
 	 * Returns the unmodifiable set of lexer rules.
@@ -28,10 +33,105 @@ public class LexerSpecification {
 	 * @throws IllegalArgumentException if tokenType is null or blank
 	 */
 	public void addRule(DfaModel automaton, String tokenType) {
+		addRule(automaton, tokenType, false);
+	}
+
+	/**
+	 * Adds a new rule to the lexer specification. The matches of a skip rule,
+	 * e.g. whitespace or comments, are consumed by the lexer without being
+	 * reported as tokens.
+	 *
+	 * @param automaton the DFA model used to recognize the token
+	 * @param tokenType the name of the token type
+	 * @param skip      whether matches of this rule are discarded
+	 * @throws IllegalArgumentException if tokenType is null or blank
+	 */
+	public void addRule(DfaModel automaton, String tokenType, boolean skip) {
 		if (tokenType == null || tokenType.isBlank()) {
 			throw new IllegalArgumentException("Token type must not be null or blank.");
 		}
-		rules.add(new LexerRule(automaton, tokenType));
+		rules.add(new LexerRule(automaton, tokenType, skip));
+	}
+
+	/**
+	 * Returns the keyword table, or null if the keywords are matched by rules.
+	 */
+	public KeywordTable getKeywords() {
+		return keywords;
+	}
+
+	/**
+	 * Replaces literal rules by a keyword table. A rule qualifies if it
+	 * matches a single literal that another rule matches as well, e.g.
+	 * {@code while} and the rule of identifiers. Such a literal is looked up
+	 * once the other rule has matched, instead of growing the automaton by
+	 * a rule of its own. The keyword wins against the other rule, regardless
+	 * of their precedence. Skip rules and rules with capture groups are kept,
+	 * and so are literals that no perfect hash can separate from another
+	 * keyword.
+	 *
+	 * @return the number of rules replaced
+	 */
+	public int extractKeywords() {
+		Map<String, List<LexerRule>> rulesByLiteral = new HashMap<>();
+		for(LexerRule rule : rules) {
+			if(rule.skip || !rule.automaton.getCaptureGroups().isEmpty()) {
+				continue;
+			}
+			String literal = Literals.literalOf(rule.automaton);
+			if(literal != null && !literal.isEmpty()) {
+				rulesByLiteral.computeIfAbsent(literal, key -> new ArrayList<>()).add(rule);
+			}
+		}
+
+		Map<String, String> keywordTypes = new HashMap<>();
+		Set<String> generalTypes = new HashSet<>();
+		if(keywords != null) {
+			for(int slot = 0; slot < keywords.size(); ++slot) {
+				keywordTypes.put(keywords.keywordAt(slot), keywords.typeAt(slot));
+			}
+			generalTypes.addAll(keywords.getGeneralTypes());
+		}
+		Map<String, LexerRule> candidates = new HashMap<>();
+		Map<String, Set<String>> subsumingTypes = new HashMap<>();
+		rulesByLiteral.forEach((literal, literalRules) -> {
+			if(literalRules.size() > 1) {
+				// the precedence among equal literals stays with the automaton
+				return;
+			}
+			LexerRule keyword = literalRules.get(0);
+			Set<String> subsuming = new HashSet<>();
+			for(LexerRule rule : rules) {
+				if(rule != keyword && Literals.accepts(rule.automaton, literal)) {
+					subsuming.add(rule.tokenType);
+				}
+			}
+			if(!subsuming.isEmpty()) {
+				candidates.put(literal, keyword);
+				subsumingTypes.put(literal, subsuming);
+			}
+		});
+
+		// literals with the same hash cannot share a perfect hash table
+		Map<Integer, Integer> keywordsByHash = new HashMap<>();
+		keywordTypes.keySet().forEach(keyword -> keywordsByHash.merge(KeywordTable.hashOf(keyword), 1, Integer::sum));
+		candidates.keySet().forEach(literal -> keywordsByHash.merge(KeywordTable.hashOf(literal), 1, Integer::sum));
+		candidates.keySet().removeIf(literal -> keywordsByHash.get(KeywordTable.hashOf(literal)) > 1);
+		candidates.forEach((literal, keyword) -> {
+			keywordTypes.put(literal, keyword.tokenType);
+			generalTypes.addAll(subsumingTypes.get(literal));
+		});
+		if(candidates.isEmpty()) {
+			return 0;
+		}
+		try {
+			keywords = KeywordTable.of(keywordTypes, generalTypes);
+		} catch(IllegalStateException e) {
+			// the literals stay rules of the automaton
+			return 0;
+		}
+		candidates.values().forEach(rules::remove);
+		return candidates.size();
 	}
 
 	/**
@@ -71,14 +171,22 @@ public class LexerSpecification {
 
 	/**
 	 * Represents a single tokenization rule: a DFA model and its token type.
+	 * In JSON, a skip rule carries {@code "skip": true}; the flag defaults to
+	 * false if it is missing.
 	 */
 	public static class LexerRule {
 		public final DfaModel automaton;
 		public final String tokenType;
+		public final boolean skip;
 
 		public LexerRule(DfaModel automaton, String tokenType) {
+			this(automaton, tokenType, false);
+		}
+
+		public LexerRule(DfaModel automaton, String tokenType, boolean skip) {
 			this.automaton = automaton;
 			this.tokenType = tokenType;
+			this.skip = skip;
 		}
 	}
 
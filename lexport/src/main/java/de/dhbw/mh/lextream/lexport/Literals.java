@@ -0,0 +1,90 @@
+package de.dhbw.mh.lextream.lexport;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import de.dhbw.mh.redeggs.CodePointRange;
+
+/**
+ * Walks DFA models to find the rules that match a single literal.
+ */
+final class Literals {
+
+	private Literals() {
+	}
+
+	/**
+	 * Returns the only word a DFA model accepts, or null if it accepts none
+	 * or several words.
+	 */
+	static String literalOf(DfaModel automaton) {
+		Set<String> live = liveStates(automaton);
+		StringBuilder literal = new StringBuilder();
+		Set<String> visited = new HashSet<>();
+		String state = automaton.getInitialState();
+		while(state != null && live.contains(state) && visited.add(state)) {
+			Map<String, String> outgoing = automaton.getTransitions().getOrDefault(state, Map.of());
+			String next = null;
+			int numberOfTransitions = 0;
+			for(Map.Entry<String, String> transition : outgoing.entrySet()) {
+				if(!live.contains(transition.getValue())) {
+					continue;
+				}
+				CodePointRange range = automaton.getSymbols().get(transition.getKey());
+				if(++numberOfTransitions > 1 || range.firstCodePoint != range.lastCodePoint) {
+					return null;
+				}
+				literal.appendCodePoint(range.firstCodePoint);
+				next = transition.getValue();
+			}
+			if(automaton.getAcceptingStates().contains(state)) {
+				return (numberOfTransitions == 0) ? literal.toString() : null;
+			}
+			state = next;
+		}
+		return null;
+	}
+
+	/**
+	 * Checks whether a DFA model accepts the given word.
+	 */
+	static boolean accepts(DfaModel automaton, String word) {
+		String state = automaton.getInitialState();
+		for(int index = 0; state != null && index < word.length(); index += Character.charCount(word.codePointAt(index))) {
+			state = next(automaton, state, word.codePointAt(index));
+		}
+		return state != null && automaton.getAcceptingStates().contains(state);
+	}
+
+	private static String next(DfaModel automaton, String state, int codePoint) {
+		Map<String, String> outgoing = automaton.getTransitions().getOrDefault(state, Map.of());
+		for(Map.Entry<String, String> transition : outgoing.entrySet()) {
+			CodePointRange range = automaton.getSymbols().get(transition.getKey());
+			if(range.firstCodePoint <= codePoint && codePoint <= range.lastCodePoint) {
+				return transition.getValue();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the states from which an accepting state can be reached.
+	 */
+	private static Set<String> liveStates(DfaModel automaton) {
+		Set<String> live = new HashSet<>(automaton.getAcceptingStates());
+		Deque<String> pending = new ArrayDeque<>(live);
+		while(!pending.isEmpty()) {
+			String target = pending.pop();
+			automaton.getTransitions().forEach((origin, outgoing) -> {
+				if(outgoing.containsValue(target) && live.add(origin)) {
+					pending.push(origin);
+				}
+			});
+		}
+		return live;
+	}
+
+}
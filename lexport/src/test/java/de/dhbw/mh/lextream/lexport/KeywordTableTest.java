@@ -0,0 +1,82 @@
+package de.dhbw.mh.lextream.lexport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.Gson;
+
+class KeywordTableTest {
+
+	private static final List<String> JAVA_KEYWORDS = List.of(
+			"abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const",
+			"continue", "default", "do", "double", "else", "enum", "extends", "final", "finally", "float",
+			"for", "goto", "if", "implements", "import", "instanceof", "int", "interface", "long", "native",
+			"new", "package", "private", "protected", "public", "return", "short", "static", "strictfp",
+			"super", "switch", "synchronized", "this", "throw", "throws", "transient", "try", "void",
+			"volatile", "while"
+	);
+
+	private static KeywordTable javaKeywords() {
+		Map<String, String> keywordTypes = new HashMap<>();
+		JAVA_KEYWORDS.forEach(keyword -> keywordTypes.put(keyword, keyword.toUpperCase()));
+		return KeywordTable.of(keywordTypes, Set.of("IDENTIFIER"));
+	}
+
+	@Test
+	void findsEveryKeyword() {
+		KeywordTable table = javaKeywords();
+
+		assertThat(table.size()).isEqualTo(JAVA_KEYWORDS.size());
+		for(String keyword : JAVA_KEYWORDS) {
+			String text = "(" + keyword + ")";
+			int slot = table.slotOf(text, 1, text.length() - 1);
+
+			assertThat(slot).as(keyword).isNotNegative();
+			assertThat(table.keywordAt(slot)).isEqualTo(keyword);
+			assertThat(table.typeAt(slot)).isEqualTo(keyword.toUpperCase());
+			assertThat(table.slotOf(text.toCharArray(), 1, text.length() - 1)).isEqualTo(slot);
+		}
+	}
+
+	@Test
+	void rejectsLexemesThatAreNoKeywords() {
+		KeywordTable table = javaKeywords();
+
+		// prefixes, extensions, other characters of the same length, and lengths outside every keyword
+		for(String lexeme : List.of("", "x", "whil", "whiles", "whilf", "While", "fo", "forr", "fox", "x1",
+				"synchronizedd", "abstracts", "instanceog", "classes")) {
+			assertThat(table.slotOf(lexeme, 0, lexeme.length())).as(lexeme).isEqualTo(-1);
+			assertThat(table.slotOf(lexeme.toCharArray(), 0, lexeme.length())).as(lexeme).isEqualTo(-1);
+		}
+	}
+
+	@Test
+	void rejectsKeywordsWithTheSameHash() {
+		assertThat(KeywordTable.hashOf("glbvs")).isEqualTo(KeywordTable.hashOf("yacxa"));
+		assertThatThrownBy(() -> KeywordTable.of(Map.of("glbvs", "A", "yacxa", "B"), Set.of("WORD")))
+				.isInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	void survivesSerialization() {
+		KeywordTable table = javaKeywords();
+
+		KeywordTable copy = new Gson().fromJson(new Gson().toJson(table), KeywordTable.class);
+
+		assertThat(copy.getGeneralTypes()).containsExactly("IDENTIFIER");
+		for(String keyword : JAVA_KEYWORDS) {
+			int slot = copy.slotOf(keyword, 0, keyword.length());
+			assertThat(slot).isEqualTo(table.slotOf(keyword, 0, keyword.length()));
+			assertThat(copy.typeAt(slot)).isEqualTo(keyword.toUpperCase());
+		}
+		assertThat(copy.slotOf("whiles", 0, 6)).isEqualTo(-1);
+	}
+
+}
@@ -0,0 +1,99 @@
+package de.dhbw.mh.lextream.lexport;
+
+import static de.dhbw.mh.lextream.lexport.TestModels.literal;
+import static de.dhbw.mh.lextream.lexport.TestModels.word;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class LexerSpecificationTest {
+
+	private static int slotOf(KeywordTable keywords, String lexeme) {
+		return keywords.slotOf(lexeme, 0, lexeme.length());
+	}
+
+	@Test
+	void extractsLiteralsThatAnotherRuleMatches() {
+		LexerSpecification spec = new LexerSpecification();
+		spec.addRule(word(), "WORD");
+		spec.addRule(literal("while"), "WHILE");
+		spec.addRule(literal("if"), "IF");
+		spec.addRule(literal("="), "ASSIGN");
+
+		assertThat(spec.extractKeywords()).isEqualTo(2);
+
+		KeywordTable keywords = spec.getKeywords();
+		assertThat(spec.getRules()).extracting(rule -> rule.tokenType).containsExactlyInAnyOrder("WORD", "ASSIGN");
+		assertThat(keywords.getGeneralTypes()).containsExactly("WORD");
+		assertThat(keywords.typeAt(slotOf(keywords, "while"))).isEqualTo("WHILE");
+		assertThat(keywords.typeAt(slotOf(keywords, "if"))).isEqualTo("IF");
+		assertThat(slotOf(keywords, "=")).isEqualTo(-1);
+	}
+
+	@Test
+	void keepsSkipRulesCaptureGroupsAndEqualLiterals() {
+		DfaModel captured = literal("else");
+		captured.addCaptureStart("q0", captured.getRange('e', 'e'), "first");
+
+		LexerSpecification spec = new LexerSpecification();
+		spec.addRule(word(), "WORD");
+		spec.addRule(literal("for"), "FOR", true);
+		spec.addRule(captured, "ELSE");
+		spec.addRule(literal("do"), "DO");
+		spec.addRule(literal("do"), "DO_AGAIN");
+
+		assertThat(spec.extractKeywords()).isZero();
+		assertThat(spec.getKeywords()).isNull();
+		assertThat(spec.getRules()).hasSize(5);
+	}
+
+	@Test
+	void keepsLiteralsWithTheSameHashAsRules() {
+		LexerSpecification spec = new LexerSpecification();
+		spec.addRule(word(), "WORD");
+		spec.addRule(literal("glbvs"), "FIRST");
+		spec.addRule(literal("yacxa"), "SECOND");
+
+		assertThat(spec.extractKeywords()).isZero();
+		assertThat(spec.getKeywords()).isNull();
+		assertThat(spec.getRules()).extracting(rule -> rule.tokenType)
+				.containsExactlyInAnyOrder("WORD", "FIRST", "SECOND");
+	}
+
+	@Test
+	void addsLiteralsToAnExistingTable() {
+		LexerSpecification spec = new LexerSpecification();
+		spec.addRule(word(), "WORD");
+		spec.addRule(literal("glbvs"), "FIRST");
+		assertThat(spec.extractKeywords()).isEqualTo(1);
+
+		spec.addRule(literal("yacxa"), "SECOND");
+		spec.addRule(literal("if"), "IF");
+
+		assertThat(spec.extractKeywords()).isEqualTo(1);
+		KeywordTable keywords = spec.getKeywords();
+		assertThat(keywords.size()).isEqualTo(2);
+		assertThat(keywords.typeAt(slotOf(keywords, "glbvs"))).isEqualTo("FIRST");
+		assertThat(keywords.typeAt(slotOf(keywords, "if"))).isEqualTo("IF");
+		// colliding with a keyword of the table, it stays a rule
+		assertThat(slotOf(keywords, "yacxa")).isEqualTo(-1);
+		assertThat(spec.getRules()).extracting(rule -> rule.tokenType).containsExactlyInAnyOrder("WORD", "SECOND");
+	}
+
+	@Test
+	void keepsTheKeywordTableInJson() {
+		LexerSpecification spec = new LexerSpecification();
+		spec.addRule(word(), "WORD");
+		spec.addRule(literal("while"), "WHILE");
+		spec.extractKeywords();
+
+		LexerSpecification copy = LexerSpecification.fromJson(spec.toJson());
+
+		KeywordTable keywords = copy.getKeywords();
+		assertThat(copy.getRules()).extracting(rule -> rule.tokenType).containsExactly("WORD");
+		assertThat(keywords.getGeneralTypes()).containsExactly("WORD");
+		assertThat(keywords.typeAt(slotOf(keywords, "while"))).isEqualTo("WHILE");
+		assertThat(slotOf(keywords, "whilst")).isEqualTo(-1);
+	}
+
+}
@@ -0,0 +1,54 @@
+package de.dhbw.mh.lextream.lexport;
+
+import static de.dhbw.mh.lextream.lexport.TestModels.literal;
+import static de.dhbw.mh.lextream.lexport.TestModels.on;
+import static de.dhbw.mh.lextream.lexport.TestModels.start;
+import static de.dhbw.mh.lextream.lexport.TestModels.word;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class LiteralsTest {
+
+	@Test
+	void findsTheOnlyWordOfAModel() {
+		assertThat(Literals.literalOf(literal("while"))).isEqualTo("while");
+		assertThat(Literals.literalOf(literal("\u20AC\uD83D\uDE00"))).isEqualTo("\u20AC\uD83D\uDE00");
+	}
+
+	@Test
+	void ignoresDeadEnds() {
+		DfaModel model = literal("if");
+		on(model, "q1", 'x', 'x', "dead");
+
+		assertThat(Literals.literalOf(model)).isEqualTo("if");
+	}
+
+	@Test
+	void rejectsModelsOfSeveralOrNoWords() {
+		DfaModel alternatives = literal("if");
+		on(alternatives, "q0", 'd', 'd', "q3");
+		on(alternatives, "q3", 'o', 'o', "q2");
+
+		DfaModel prefix = literal("for");
+		prefix.addAcceptingState("q2");
+
+		DfaModel none = start();
+		on(none, "q0", 'a', 'a', "q1");
+
+		assertThat(Literals.literalOf(word())).isNull();
+		assertThat(Literals.literalOf(alternatives)).isNull();
+		assertThat(Literals.literalOf(prefix)).isNull();
+		assertThat(Literals.literalOf(none)).isNull();
+	}
+
+	@Test
+	void checksWhetherAModelAcceptsAWord() {
+		assertThat(Literals.accepts(word(), "while")).isTrue();
+		assertThat(Literals.accepts(word(), "")).isFalse();
+		assertThat(Literals.accepts(word(), "x1")).isFalse();
+		assertThat(Literals.accepts(literal("\uD83D\uDE00"), "\uD83D\uDE00")).isTrue();
+		assertThat(Literals.accepts(literal("\uD83D\uDE00"), "\uD83D")).isFalse();
+	}
+
+}
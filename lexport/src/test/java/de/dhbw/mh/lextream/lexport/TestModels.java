@@ -0,0 +1,52 @@
+package de.dhbw.mh.lextream.lexport;
+
+/**
+ * Hand-written DFA models for tests.
+ */
+final class TestModels {
+
+	private TestModels() {
+		// prevent instantiation
+	}
+
+	/**
+	 * A DFA matching exactly the given text.
+	 */
+	static DfaModel literal(String text) {
+		DfaModel model = start();
+		int state = 0;
+		for(int index = 0; index < text.length(); index += Character.charCount(text.codePointAt(index))) {
+			on(model, "q" + state, text.codePointAt(index), text.codePointAt(index), "q" + ++state);
+		}
+		model.addAcceptingState("q" + state);
+		return model;
+	}
+
+	/**
+	 * A DFA matching one or more lowercase Latin letters.
+	 */
+	static DfaModel word() {
+		DfaModel model = start();
+		on(model, "q0", 'a', 'z', "q1");
+		on(model, "q1", 'a', 'z', "q1");
+		model.addAcceptingState("q1");
+		return model;
+	}
+
+	/**
+	 * Starts a DFA with initial state {@code q0}.
+	 */
+	static DfaModel start() {
+		DfaModel model = new DfaModel();
+		model.addState("q0");
+		model.setInitialState("q0");
+		return model;
+	}
+
+	static void on(DfaModel model, String origin, int firstCodePoint, int lastCodePoint, String target) {
+		model.addState(origin);
+		model.addState(target);
+		model.addTransition(origin, model.getRange(firstCodePoint, lastCodePoint), target);
+	}
+
+}